@@ -0,0 +1,85 @@
+package org.nabe.koshigaya;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+// BoardCanvas on android.graphics.Canvas, the paints and the paths of the
+// colors are made once and reused by every frame
+//
+// set the canvas of the frame by setCanvas() before BoardRenderer draws
+class AndroidBoardCanvas implements BoardCanvas {
+
+    // fill and stroke paints by color index
+    private final Paint[] fills;
+    private final Paint[] strokes;
+    // path of each color, rebuilt by setPath()
+    private final Path[] paths;
+    // ring of drawWarning()
+    private final Paint warning;
+    private Canvas canvas;
+
+    AndroidBoardCanvas(int[] colors) {
+        fills = new Paint[colors.length];
+        strokes = new Paint[colors.length];
+        paths = new Path[colors.length];
+        for (int c = 0; c < colors.length; c++) {
+            fills[c] = new Paint();
+            fills[c].setColor(colors[c]);
+            fills[c].setStyle(Paint.Style.FILL);
+
+            strokes[c] = new Paint();
+            strokes[c].setColor(colors[c]);
+            strokes[c].setStyle(Paint.Style.STROKE);
+            strokes[c].setStrokeJoin(Paint.Join.ROUND);
+            strokes[c].setStrokeCap(Paint.Cap.ROUND);
+
+            paths[c] = new Path();
+        }
+
+        warning = new Paint();
+        warning.setColor(Color.RED);
+        warning.setStyle(Paint.Style.STROKE);
+    }
+
+    void setCanvas(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    void setStrokeWidth(float width) {
+        for (Paint stroke : strokes) {
+            stroke.setStrokeWidth(width);
+        }
+        warning.setStrokeWidth(width / 2);
+    }
+
+    @Override
+    public void drawCircle(float x, float y, float radius, int color) {
+        canvas.drawCircle(x, y, radius, fills[color]);
+    }
+
+    @Override
+    public void setPath(int color, float[] x, float[] y, int count) {
+        // rewind() keeps the memory of the path for the next points
+        Path path = paths[color];
+        path.rewind();
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                path.moveTo(x[i], y[i]);
+            } else {
+                path.lineTo(x[i], y[i]);
+            }
+        }
+    }
+
+    @Override
+    public void drawPath(int color) {
+        canvas.drawPath(paths[color], strokes[color]);
+    }
+
+    @Override
+    public void drawWarning(float x, float y, float radius) {
+        canvas.drawCircle(x, y, radius, warning);
+    }
+}
@@ -2,103 +2,141 @@ package org.nabe.koshigaya;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Point;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
+import android.widget.Toast;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class HexagonGame extends View {
 
     private final String TAG = "HexagonGame";
 
     // indexes for colors
-    private final int YELLOW = 0;
-    private final int RED = 1;
-    private final int BLUE = 2;
-    private final int GRAY = 3;
+    private final int GRAY = GameBoard.GRAY;
 
-    // array of colors
-    private final int[] colors = {Color.YELLOW, Color.MAGENTA, Color.CYAN, Color.GRAY};
+    // array of colors, enough for GameBoard.MAX_COLORS and GRAY after them
+    private final int[] colors = {Color.YELLOW, Color.MAGENTA, Color.CYAN, Color.GREEN,
+            0xFFFF8800, Color.WHITE, 0xFF8888FF, 0xFFFF4444, Color.GRAY};
+    private static final String[] colorNames = {"yellow", "red", "blue", "green",
+            "orange", "white", "violet", "pink", "gray"};
 
     // size of hexagon i.e. distance from center
-    private int mapRadius = 0;
-    // square size of each point
-    private int pointSize;
-    // radius of each point circle
-    private int pointRadius;
-    // array of hexagon points
-    private final Map<OffsetCoord, Hex> hexMap;
-    // points for drawing path keeping the insertion order with LinkedHashSet
-    private final List<Set<Hex>> pathPoints;
-    // answer points, total 6 points,  2 of start and end points for 3 color paths
-    private final List<List<Hex>> answerPoints;
-    // private Hex[][] answerPoints; // can be two dimension
-    // size of path in pixel
-    private int strokeWidth;
-    // current selected hex
-    private Hex prevHex = null;
+    private final int mapRadius;
+    // number of the color paths
+    private final int colorCount;
+    // hexagon points, paths and answer points, see GameBoard
+    private final GameBoard board;
+    // array of hexagon points by index
+    private final HexGrid grid;
+    // sizes, cell centers and drawing of the board
+    private final BoardRenderer renderer;
+    // gray regions never filled and colors cut off, checked on every move
+    private final DeadEndDetector deadEnds;
+    // paints and paths made once for all the frames
+    private final AndroidBoardCanvas boardCanvas;
+    // the gray hexes and the start and end points drawn once for each puzzle
+    private Bitmap staticLayer;
+    private Canvas staticCanvas;
+    // puzzle version drawn on staticLayer
+    private int staticVersion = -1;
+    // area changed by a touch move, left, top, right and bottom
+    private final int[] dirtyBounds = new int[4];
+    private final int[] segmentBounds = new int[4];
+    // the last touch point moved to
+    private float lastTouchX;
+    private float lastTouchY;
+    // index of the current selected hex
+    private int prevHex = HexGrid.NONE;
     // fadeout animation
     private final Animation animFadeOut;
-    // timer to run waiting effect
-    private Timer waitingTimer;
+    // true while waiting for a puzzle, the waiting effect is drawn,
+    // only changed on the UI thread
+    private boolean waiting = false;
+    // colors of the waiting effect
+    private final LoadingAnimation loadingAnimation;
+    // show the solution of the puzzle waited for
+    private boolean waitingShow = false;
+    // puzzles generated ahead in the background while attached to the window
+    private PuzzleQueue puzzleQueue;
+    // precomputed puzzles, opened on the first game
+    private PuzzleBank puzzleBank;
+    private boolean puzzleBankOpened = false;
+    // solves the board in the background for a hint, null on a map too large
+    private HintEngine hintEngine;
+    // the hex shown as the hint and its color, HexGrid.NONE if none
+    private int hintCell = HexGrid.NONE;
+    private int hintColor = GRAY;
+    // counters and durations shown on the overlay, null unless R.bool.show_metrics
+    private final Metrics metrics;
+    private final Paint metricsPaint;
+    // writes metrics.json off the UI thread, null without the metrics
+    private final ExecutorService metricsWriter;
+    private final SplitMix64 random = new SplitMix64();
 
     public HexagonGame(Context context) {
         this(context, null);
     }
 
     public HexagonGame(Context context, AttributeSet attributeSet) {
-        super(context, attributeSet);
-
-        setBackgroundColor(MainActivity.backgroundColor);
+        this(context, attributeSet, context.getResources().getInteger(R.integer.map_radius),
+                context.getResources().getInteger(R.integer.color_count));
+    }
 
-        // currently supports fixed radius only,
-        // actually works with 3 or 4 but won't be tested
-        mapRadius = 2;
+    // radius from GameBoard.MIN_RADIUS to MAX_RADIUS, colors from MIN_COLORS to MAX_COLORS
+    public HexagonGame(Context context, int mapRadius, int colorCount) {
+        this(context, null, mapRadius, colorCount);
+    }
 
-        // saves the user selected hex points to draw the path
-        pathPoints = new ArrayList<Set<Hex>>(colors.length);
-        for (int i = 0; i < colors.length; i++) {
-            pathPoints.add(new LinkedHashSet<>());
-        }
+    private HexagonGame(Context context, AttributeSet attributeSet, int mapRadius, int colorCount) {
+        super(context, attributeSet);
 
-        // contains two of start and end points for all color paths
-        answerPoints = new ArrayList<List<Hex>>(colors.length);
-        for (int i = 0; i < colors.length; i++) {
-            answerPoints.add(new ArrayList<Hex>());
-        }
+        setBackgroundColor(MainActivity.backgroundColor);
 
-        // creates a hex map based on the current radius
-        hexMap = new HashMap<OffsetCoord, Hex>();
-        for (int q = -mapRadius; q <= mapRadius; q++) {
-            int r1 = Math.max(-mapRadius, -q - mapRadius);
-            int r2 = Math.min(mapRadius, -q + mapRadius);
-            for (int r = r1; r <= r2; r++) {
-                Hex h = new Hex(q, r, -q - r, GRAY);
-                OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, h);
-                hexMap.put(coord, h);
-            }
+        this.mapRadius = mapRadius;
+        this.colorCount = colorCount;
+
+        board = new GameBoard(mapRadius, colorCount);
+        grid = board.getGrid();
+        renderer = new BoardRenderer(board);
+        deadEnds = new DeadEndDetector(board);
+
+        if (context.getResources().getBoolean(R.bool.show_metrics)) {
+            metrics = new Metrics();
+            board.setMetrics(metrics);
+            metricsPaint = new Paint();
+            metricsPaint.setAntiAlias(true);
+            metricsPaint.setColor(Color.WHITE);
+            metricsPaint.setTextSize(10 * context.getResources().getDisplayMetrics().density);
+            metricsWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "MetricsWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            metrics = null;
+            metricsPaint = null;
+            metricsWriter = null;
         }
+        boardCanvas = new AndroidBoardCanvas(colors);
+        loadingAnimation = new LoadingAnimation(grid.size(), colors.length, random);
 
         // animation
         animFadeOut = AnimationUtils.loadAnimation(context, R.anim.fade_out);
@@ -118,195 +156,257 @@ public class HexagonGame extends View {
         });
     }
 
-    // generates a new game
-    // 1. reset the all hexagon points - hexMap and pathPoints
-    // 2. generate the paris of random points for three colors - answerPoints
-    // 3. verify that each pair can be connected without crossing and
-    //    the three paths cover all hexagon points  - pathPoints
-    void generateGame() {
-        do {
-            // reset path
-            for (int i = 0; i < colors.length; i++) {
-                pathPoints.get(i).clear();
-            }
-
-            // reset start and end points
-            for (int i = 0; i < colors.length; i++) {
-                answerPoints.get(i).clear();
-            }
-
-            // reset all hexagon points
-            for (Map.Entry<OffsetCoord, Hex> entry : hexMap.entrySet()) {
-                Hex h = entry.getValue();
-                h.c = GRAY;
-            }
-
-            List<Hex> hexList = new ArrayList<Hex>(hexMap.values());
-
-            // generate start and end points for all colors
-            for (int c = 0; c < GRAY; c++) {
-                Hex h1;
-                Hex h2;
-
-                do {
-                    do {
-                        do {
-                            h1 = hexList.get(getRandomNumber(0, hexList.size()));
-                        } while (h1.c != GRAY);
-                        do {
-                            h2 = hexList.get(getRandomNumber(0, hexList.size()));
-                        } while (h2.c != GRAY);
-                    } while (h2.equals(h1));
-                } while (h2.isNeighbor(h1)); // avoid the neighbors
-
-                h1.c = h2.c = c;
-
-                // save the points for checking the answers
-                answerPoints.get(c).add(h1);
-                answerPoints.get(c).add(h2);
-            }
-
-            // set the colors of the generated answer points to hexMap
-            for (int c = 0; c < GRAY; c++) {
-                List<Hex> ans = answerPoints.get(c);
-                for (Hex hex : ans) {
-                    OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, hex);
-                    Hex h = hexMap.get(coord);
-                    if (h != null) {
-                        h.c = c;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        // generates the puzzles on its own generator, the board is used by the UI thread
+        int capacity = getResources().getInteger(R.integer.puzzle_queue_size);
+        puzzleQueue = new PuzzleQueue(new PuzzleGenerator(grid, random.split()), colorCount, capacity);
+        puzzleQueue.setMetrics(metrics);
+        puzzleQueue.setListener(new PuzzleQueue.Listener() {
+            @Override
+            public void onPuzzleReady(PuzzleQueue queue) {
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (waiting) startGame(waitingShow);
                     }
-                }
+                });
             }
-
-        } while (!IsCurrentAnswerPointsVerified()); // verified the generated answer points
+        });
+        puzzleQueue.start();
+
+        if (HintEngine.isSupported(grid)) {
+            hintEngine = new HintEngine(grid);
+            hintEngine.setListener(new HintEngine.Listener() {
+                @Override
+                public void onHint(HintEngine engine, final HintEngine.Hint hint) {
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (hintEngine == engine) showHint(hint);
+                        }
+                    });
+                }
+            });
+        }
     }
 
-    // generateGame runs in a different thread since it takes time
-    private class generateGameAsync implements Runnable {
-        private final boolean show;
-
-        generateGameAsync(boolean show) {
-            this.show = show;
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        puzzleQueue.setMetrics(null);
+        puzzleQueue.stop();
+        puzzleQueue = null;
+        if (hintEngine != null) {
+            hintEngine.shutdown();
+            hintEngine = null;
         }
+        stopWaiting();
+        dumpMetrics();
+    }
 
+    // redraws the waiting effect on the display frames until a puzzle is ready,
+    // the view is invalidated only when the palette changes
+    private final Choreographer.FrameCallback waitingFrame = new Choreographer.FrameCallback() {
         @Override
-        public void run() {
-            generateGame();
-
-            if (!show) {
-                resetGame();
+        public void doFrame(long frameTimeNanos) {
+            if (!waiting) return;
+            if (loadingAnimation.update(frameTimeNanos)) {
+                invalidate();
             }
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    private void startWaiting(boolean show) {
+        waitingShow = show;
+        // a second tap while waiting keeps the same animation
+        if (waiting) return;
+        waiting = true;
+        loadingAnimation.start(System.nanoTime());
+        Choreographer.getInstance().postFrameCallback(waitingFrame);
+        invalidate();
+    }
+
+    // called when a puzzle is ready, no waiting frame is drawn after this
+    private void stopWaiting() {
+        if (!waiting) return;
+        waiting = false;
+        Choreographer.getInstance().removeFrameCallback(waitingFrame);
+    }
 
-            waitingTimer.cancel();
-            waitingTimer = null;
+    void startGame(boolean show) {
+        // takes a puzzle generated ahead, or a precomputed one, and waits
+        // for the queue only if there is neither
+        Puzzle puzzle = takeQueuedPuzzle();
+        if (puzzle == null) {
+            puzzle = takeBankPuzzle();
+        }
+        if (puzzle == null) {
+            startWaiting(show);
+            return;
+        }
+        stopWaiting();
+        clearHint();
 
-            postInvalidate();
+        board.loadPuzzle(puzzle);
+        if (!show) {
+            board.resetGame();
         }
+        deadEnds.update();
+        invalidate();
     }
 
-    void startGame(boolean show) {
-        TimerTask task = new TimerTask() {
-            public void run() {
-                postInvalidate();
-            }
-        };
-        waitingTimer = new Timer();
-        waitingTimer.schedule(task, 100, 250);
+    private Puzzle takeQueuedPuzzle() {
+        if (puzzleQueue == null) return null;
+        Puzzle puzzle = puzzleQueue.poll();
+        Log.d(TAG, "puzzle queue depth=" + puzzleQueue.getDepth() + "/" + puzzleQueue.getCapacity()
+                + " refills=" + puzzleQueue.getRefillCount()
+                + " refill last=" + puzzleQueue.getLastRefillNanos() / 1000 + "us"
+                + " avg=" + puzzleQueue.getAverageRefillNanos() / 1000 + "us"
+                + " max=" + puzzleQueue.getMaxRefillNanos() / 1000 + "us");
+        return puzzle;
+    }
 
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.submit(new generateGameAsync(show));
+    // a random puzzle of the bank, null if the bank has none of this map
+    private Puzzle takeBankPuzzle() {
+        if (!puzzleBankOpened) {
+            puzzleBankOpened = true;
+            puzzleBank = PuzzleAsset.open(getContext());
+        }
+        if (puzzleBank == null) return null;
+        return puzzleBank.random(mapRadius, colorCount, random);
     }
 
     void restartGame() {
-        resetGame();
+        clearHint();
+        board.resetGame();
+        deadEnds.update();
         invalidate();
     }
 
-    void resetGame() {
-        for (int c = 0; c < GRAY; c++) {
-            clearPath(c, 0);
+    // asks for the next hex of the path being drawn, shown when solved
+    void requestHint() {
+        if (hintEngine == null || waiting) return;
+        int color = prevHex == HexGrid.NONE ? GRAY : board.getColor(prevHex);
+        hintEngine.request(board, color);
+    }
+
+    private void showHint(HintEngine.Hint hint) {
+        Log.d(TAG, "hint kind=" + hint.kind + " in " + hint.nanos / 1000 + "us");
+        switch (hint.kind) {
+            case HintEngine.Hint.NEXT:
+                hintCell = hint.cell;
+                hintColor = hint.color;
+                printHex(hint.cell, "hint:");
+                invalidate();
+                break;
+            case HintEngine.Hint.DEAD_END:
+                Toast.makeText(getContext(), "Dead end, undo some path", Toast.LENGTH_SHORT).show();
+                break;
+            case HintEngine.Hint.TIMEOUT:
+                Toast.makeText(getContext(), "No hint found", Toast.LENGTH_SHORT).show();
+                break;
         }
     }
 
-    @SuppressLint("DrawAllocation")
+    // stops the hint in progress and hides the hint shown
+    private void clearHint() {
+        if (hintEngine != null) hintEngine.cancel();
+        if (hintCell == HexGrid.NONE) return;
+        hintCell = HexGrid.NONE;
+        invalidate();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        drawFrame(canvas);
+        if (metrics != null) {
+            metrics.record(Metrics.FRAME_NANOS, System.nanoTime() - startTime);
+            drawMetrics(canvas);
+        }
+    }
+
+    // allocates nothing, see BoardRenderer
+    private void drawFrame(Canvas canvas) {
         // animation set alpha to 0
         setAlpha(1.0f);
 
-        if (mapRadius < 2) return;
-
-        if (waitingTimer != null) {
-            for (Map.Entry<OffsetCoord, Hex> entry : hexMap.entrySet()) {
-                OffsetCoord coord = entry.getKey();
-                Hex h = entry.getValue();
-                Point point = convCoordToPoint(coord, mapRadius, pointSize);
-                Paint paint = new Paint();
-                paint.setColor(colors[getRandomNumber(0, colors.length)]);
-                paint.setStyle(Paint.Style.FILL);
-                canvas.drawCircle(point.x, point.y, pointRadius, paint);
-            }
+        if (staticLayer == null) return;
+
+        if (waiting) {
+            boardCanvas.setCanvas(canvas);
+            renderer.drawWaiting(boardCanvas, loadingAnimation.getPalette());
+            boardCanvas.setCanvas(null);
             return;
         }
 
-        // draws hex points
-        for (Map.Entry<OffsetCoord, Hex> entry : hexMap.entrySet()) {
-            OffsetCoord coord = entry.getKey();
-            Hex h = entry.getValue();
-            Point point = convCoordToPoint(coord, mapRadius, pointSize);
-            Paint paint = new Paint();
-            paint.setColor(colors[GRAY]);
-            paint.setStyle(Paint.Style.FILL);
-            canvas.drawCircle(point.x, point.y, pointRadius, paint);
+        // redraws the static layer only for a new puzzle
+        if (staticVersion != board.getPuzzleVersion()) {
+            staticLayer.eraseColor(Color.TRANSPARENT);
+            boardCanvas.setCanvas(staticCanvas);
+            renderer.drawStatic(boardCanvas);
+            staticVersion = board.getPuzzleVersion();
         }
+        canvas.drawBitmap(staticLayer, 0, 0, null);
+
+        // and the paths on it
+        boardCanvas.setCanvas(canvas);
+        renderer.drawPaths(boardCanvas);
+        renderer.drawDeadEnds(boardCanvas, deadEnds);
+        if (hintCell != HexGrid.NONE) {
+            renderer.drawHint(boardCanvas, hintColor, hintCell);
+        }
+        boardCanvas.setCanvas(null);
+    }
 
-        // draws both start and end points on top of gray points
-        for (int c = 0; c < GRAY; c++) {
-            List<Hex> ans = answerPoints.get(c);
-            for (Hex hex : ans) {
-                OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, hex);
-                Point point = convCoordToPoint(coord, mapRadius, pointSize);
-                Paint paint = new Paint();
-                paint.setColor(colors[c]);
-                paint.setStyle(Paint.Style.FILL);
-                canvas.drawCircle(point.x, point.y, pointRadius, paint);
-            }
+    // the summaries of the histograms at the top left. they are formatted on
+    // every frame, so the overlay is for debugging only. a move redraws only
+    // around the path, so the overlay may be a few moves behind. the
+    // histograms never recorded are left out, the game takes its puzzles
+    // from the queue and the bank and verifies none of them
+    private void drawMetrics(Canvas canvas) {
+        float lineHeight = metricsPaint.getTextSize() * 1.2f;
+        int line = 0;
+        for (int i = 0; i < Metrics.HISTOGRAMS; i++) {
+            if (metrics.getCount(i) == 0) continue;
+            canvas.drawText(metrics.summary(i), 0, lineHeight * ++line, metricsPaint);
         }
+    }
 
-        // draws paths
-        for (int c = 0; c < GRAY; c++) {
-            Path path = new Path();
-            boolean first = true;
-            for (Hex hex : pathPoints.get(c)) {
-                OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, hex);
-                Point point = convCoordToPoint(coord, mapRadius, pointSize);
-                if (first) {
-                    first = false;
-                    path.moveTo(point.x, point.y);
-                } else {
-                    path.lineTo(point.x, point.y);
+    // the metrics as JSON to the log and to metrics.json in the files
+    // directory, the file written by metricsWriter off the UI thread
+    void dumpMetrics() {
+        if (metrics == null) return;
+        final String json = metrics.toJson();
+        Log.d(TAG, "metrics " + json);
+        final File file = new File(getContext().getFilesDir(), "metrics.json");
+        metricsWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try (FileWriter writer = new FileWriter(file)) {
+                    writer.write(json);
+                } catch (IOException e) {
+                    Log.e(TAG, "failed to write " + file, e);
                 }
             }
-            Paint blueLinePaint = new Paint();
-            blueLinePaint.setColor(colors[c]);
-            blueLinePaint.setStyle(Paint.Style.STROKE);
-            blueLinePaint.setStrokeJoin(Paint.Join.ROUND);
-            blueLinePaint.setStrokeCap(Paint.Cap.ROUND);
-            blueLinePaint.setStrokeWidth(strokeWidth);
-            canvas.drawPath(path, blueLinePaint);
-        }
+        });
     }
 
     void initHexSize(int canvasSize) {
-        int hexSize = mapRadius * 2 + 1;
-
-        pointSize = canvasSize / hexSize;
+        renderer.layout(canvasSize);
+        boardCanvas.setStrokeWidth(renderer.getStrokeWidth());
 
-        pointRadius = (pointSize / 2) * 4 / 5;
-
-        strokeWidth = pointRadius / 2;
+        if (staticLayer != null) staticLayer.recycle();
+        staticLayer = Bitmap.createBitmap(canvasSize, canvasSize, Bitmap.Config.ARGB_8888);
+        staticCanvas = new Canvas(staticLayer);
+        staticVersion = -1;
     }
 
     // seems called twice so try to prevent 2nd one
@@ -330,17 +430,42 @@ public class HexagonGame extends View {
     @SuppressLint("ClickableViewAccessibility")
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        long startTime = metrics == null ? 0 : System.nanoTime();
         float x = event.getX();
         float y = event.getY();
 
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
+                // a touch makes the hint out of date
+                clearHint();
+                lastTouchX = x;
+                lastTouchY = y;
                 startTouch(x, y);
+                deadEnds.update();
                 invalidate();
                 break;
             case MotionEvent.ACTION_MOVE:
-                moveTouch(x, y);
-                invalidate();
+                // all the points batched into the event, the oldest first, and
+                // redraws only around the segments added to the path, if any
+                boolean changed = false;
+                for (int h = 0; h < event.getHistorySize(); h++) {
+                    changed |= dragTo(event.getHistoricalX(h), event.getHistoricalY(h));
+                }
+                changed |= dragTo(x, y);
+                if (changed) {
+                    // the warnings may be anywhere on the board, so all of
+                    // it is redrawn while they are shown or to remove them
+                    boolean shown = deadEnds.isDeadEnd();
+                    if (deadEnds.update() && !shown) {
+                        Log.d(TAG, "dead end");
+                        if (metrics != null) metrics.increment(Metrics.DEAD_ENDS);
+                    }
+                    if (shown || deadEnds.isDeadEnd()) {
+                        invalidate();
+                    } else {
+                        invalidate(dirtyBounds[0], dirtyBounds[1], dirtyBounds[2], dirtyBounds[3]);
+                    }
+                }
                 break;
             case MotionEvent.ACTION_UP:
                 endTouch(x, y);
@@ -348,304 +473,137 @@ public class HexagonGame extends View {
                 break;
         }
 
+        if (metrics != null) metrics.record(Metrics.TOUCH_NANOS, System.nanoTime() - startTime);
         return true;
     }
 
     void startTouch(float x, float y) {
         // get the mapped hex from the point
-        Hex selectedHex = getSelectedHex(x, y);
+        int selectedHex = getSelectedHex(x, y);
 
         // return if none is mapped
-        if (selectedHex == null) return;
+        if (selectedHex == HexGrid.NONE) return;
 
         // reset the path if the starting point is selected again or if the end point is selected
-        for (int c = 0; c < GRAY; c++) {
-            List<Hex> ans = answerPoints.get(c);
-            if (ans.get(0) == selectedHex || ans.get(1) == selectedHex) {
-                Set<Hex> path = pathPoints.get(c);
-                if (path.size() > 0) {
-                    clearPath(c, 0);
+        for (int c = 0; c < colorCount; c++) {
+            if (board.getAnswerPoint(c, 0) == selectedHex || board.getAnswerPoint(c, 1) == selectedHex) {
+                if (!board.getPath(c).isEmpty()) {
+                    board.clearPath(c, 0);
                 }
             }
         }
 
         // remember the selected point as prevHex and put it into the point array for drawing path
-        for (int c = 0; c < GRAY; c++) {
-            // get hex in path and remove it thereafter
-            Hex hexInPath = getMidInPath(c, selectedHex);
+        for (int c = 0; c < colorCount; c++) {
+            // cut the path after the hex if it is in the path
+            boolean inPath = board.cutPathAfter(c, selectedHex);
 
-            if (selectedHex.c == c || selectedHex.equals(hexInPath)) {
+            if (board.getColor(selectedHex) == c || inPath) {
+                board.setColor(selectedHex, c);
                 printHex(selectedHex, "first selected:");
-                selectedHex.c = c;
                 prevHex = selectedHex;
-                pathPoints.get(c).add(selectedHex);
+                board.addToPath(c, selectedHex);
                 return;
             }
         }
 
         // do nothing since gray is selected as starting
         printHex(selectedHex, "none:");
-        prevHex = null;
+        prevHex = HexGrid.NONE;
     }
 
-    void moveTouch(float x, float y) {
+    // moves the touch from the last point to the point through every hex on the
+    // way, so a fast swipe whose points are far apart skips no hex. true if the
+    // path changed, dirtyBounds has the area changed then
+    boolean dragTo(float x, float y) {
+        float dx = x - lastTouchX;
+        float dy = y - lastTouchY;
+        int steps = (int) (Math.max(Math.abs(dx), Math.abs(dy)) / renderer.getHitStep()) + 1;
+        boolean changed = false;
+        for (int s = 1; s <= steps; s++) {
+            int from = prevHex;
+            int added = moveTouch(lastTouchX + dx * s / steps, lastTouchY + dy * s / steps);
+            if (added == HexGrid.NONE) continue;
+            if (metrics != null) metrics.increment(Metrics.MOVES);
+            renderer.getSegmentBounds(from, added, segmentBounds);
+            if (!changed) {
+                System.arraycopy(segmentBounds, 0, dirtyBounds, 0, 4);
+                changed = true;
+            } else {
+                dirtyBounds[0] = Math.min(dirtyBounds[0], segmentBounds[0]);
+                dirtyBounds[1] = Math.min(dirtyBounds[1], segmentBounds[1]);
+                dirtyBounds[2] = Math.max(dirtyBounds[2], segmentBounds[2]);
+                dirtyBounds[3] = Math.max(dirtyBounds[3], segmentBounds[3]);
+            }
+        }
+        lastTouchX = x;
+        lastTouchY = y;
+        return changed;
+    }
+
+    // returns the hex added to the path, HexGrid.NONE if nothing changed
+    int moveTouch(float x, float y) {
         // not the first one selected
         // FIXME: not allowing to select the first one while moving
-        if (prevHex == null) return;
+        if (prevHex == HexGrid.NONE) return HexGrid.NONE;
 
         // get the mapped hex from the point
-        Hex selectedHex = getSelectedHex(x, y);
+        int selectedHex = getSelectedHex(x, y);
 
         // return if none is mapped
-        if (selectedHex == null) return;
+        if (selectedHex == HexGrid.NONE) return HexGrid.NONE;
 
         // return if the same is selected
-        if (selectedHex.equals(prevHex)) return;
+        if (selectedHex == prevHex) return HexGrid.NONE;
 
         //  only neighbor will be taken
-        if (!prevHex.isNeighbor(selectedHex)) return;
+        if (!grid.isNeighbor(prevHex, selectedHex)) return HexGrid.NONE;
+
+        int prevColor = board.getColor(prevHex);
 
         // if new gray point is selected
-        if (selectedHex.c == GRAY) {
-            for (int c = 0; c < GRAY; c++) {
-                if (prevHex.c == c) {
-                    if (isPathConnected(c)) return;
+        if (board.getColor(selectedHex) == GRAY) {
+            for (int c = 0; c < colorCount; c++) {
+                if (prevColor == c) {
+                    if (board.isPathConnected(c)) return HexGrid.NONE;
+                    board.setColor(selectedHex, c);
                     printHex(selectedHex, "added:");
-                    selectedHex.c = c;
-                    pathPoints.get(c).add(selectedHex);
+                    board.addToPath(c, selectedHex);
                     prevHex = selectedHex;
-                    break;
+                    return selectedHex;
                 }
             }
-            return;
+            return HexGrid.NONE;
         }
 
-        // must be heading to the end point
-        if (prevHex.c != selectedHex.c) {
-            return;
+        // must be heading to the end point, nothing changes on a hex of the
+        // path or once the path is connected
+        if (prevColor != board.getColor(selectedHex)) {
+            return HexGrid.NONE;
+        }
+        if (board.isPathConnected(prevColor) || board.getPath(prevColor).contains(selectedHex)) {
+            return HexGrid.NONE;
         }
 
         printHex(selectedHex, "added the end point:");
-        pathPoints.get(prevHex.c).add(selectedHex);
+        board.addToPath(prevColor, selectedHex);
+        return selectedHex;
     }
 
     void endTouch(float x, float y) {
-        if (isGameEnd()) {
+        if (board.isGameEnd()) {
             Log.d(TAG, "Game ended");
             startAnimation(animFadeOut);
         }
     }
 
-    // gets a mapped hex from x-y location
-    Hex getSelectedHex(float x, float y) {
-        // get offsetcord from the pixel points
-        OffsetCoord coord = convPointToCoord(mapRadius, pointSize, (int) x, (int) y);
-        return hexMap.get(coord);
-    }
-
-    // gets a hex in the middle of path from the hex position
-    // and removes the path after the hex
-    Hex getMidInPath(int c, Hex hex) {
-        Set<Hex> path = pathPoints.get(c);
-        if (path.size() == 0) return null;
-        int i = 0;
-        for (Hex h : path) {
-            if (h.equals(hex)) {
-                break;
-            }
-            i++;
-        }
-        // not in the path
-        if (i == path.size()) return null;
-        // last one
-        if ((i + 1) == path.size()) return hex;
-        // clear path after i
-        clearPath(c, i);
-        return hex;
-    }
-
-    // removes the path starting from the specified position
-    void clearPath(int c, int start) {
-        Set<Hex> path = pathPoints.get(c);
-        // set GRAY i.e. mark deselected to hexes in the path
-        // starting from start to end
-        int i = 0;
-        for (Iterator<Hex> iter = path.iterator(); iter.hasNext(); ) {
-            Hex h = iter.next();
-            if (i >= start) {
-                h.c = GRAY;
-                iter.remove();
-            }
-            i++;
-        }
-        // ensure the end points not to be erased
-        List<Hex> ans = answerPoints.get(c);
-        ans.get(0).c = c;
-        ans.get(1).c = c;
-    }
-
-    // checks two of both start and end points are in the path
-    boolean isPathConnected(int c) {
-        Set<Hex> path = pathPoints.get(c);
-        if (path.size() < 2) return false;
-        Hex h1 = path.iterator().next();
-        Hex h2 = null;
-        for (Iterator<Hex> iter = path.iterator(); iter.hasNext(); ) {
-            h2 = iter.next();
-        }
-        //Hex h2 = path.get(path.size() - 1);
-        List<Hex> ans = answerPoints.get(c);
-        return (ans.get(0) == h1 && ans.get(1) == h2) || (ans.get(0) == h2 && ans.get(1) == h1);
-    }
-
-    boolean isGameEnd() {
-        for (int c = 0; c < GRAY; c++) {
-            if (!isPathConnected(c)) {
-                return false;
-            }
-        }
-        int total = 0;
-        for (int c = 0; c < GRAY; c++) {
-            Set<Hex> path = pathPoints.get(c);
-            total += path.size();
-        }
-        //Log.d(TAG,  "Path total=" + total + " hexMap size=" + hexMap.size());
-        if (!(hexMap.size() == total)) {
-            return false;
-        }
-        return true;
-    }
-
-    int getRandomNumber(int min, int max) {
-        return (int) ((Math.random() * (max - min)) + min);
-    }
-
-    void printHex(Hex h, String msg) {
-        String[] cstr = {"yellow", "red", "blue", "gray"};
-        OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, h);
-        Log.d(TAG, msg + " row=" + coord.row + " col=" + coord.col + " " + cstr[h.c]);
+    // gets the index of a mapped hex from x-y location, HexGrid.NONE if none
+    int getSelectedHex(float x, float y) {
+        return renderer.hexAt(x, y);
     }
 
-    public Point convCoordToPoint(OffsetCoord coord, int mapRadius, int pointSize) {
-        int offset = pointSize / 2;
-        int x = offset + (coord.col + mapRadius) * pointSize + (coord.row & 1) * pointSize / 2;
-        int y = offset + (coord.row + mapRadius) * pointSize;
-        return new Point(x, y);
+    void printHex(int index, String msg) {
+        OffsetCoord coord = grid.coord(index);
+        Log.d(TAG, msg + " row=" + coord.row + " col=" + coord.col + " " + colorNames[board.getColor(index)]);
     }
-
-    public OffsetCoord convPointToCoord(int mapRadius, int pointSize, int x, int y) {
-        int offset = pointSize / 2;
-        int row = y / pointSize;
-        int col = (x - (row & 1) * offset) / pointSize;
-        return new OffsetCoord(col - mapRadius, row - mapRadius);
-    }
-
-    // returns true if all the combination of the current start and end points
-    // can be connected without crossing each other and cover all hexagon points
-    //
-    // findpath() finds a path connecting start and end. runs findpath() for each color
-    // and verifies that the three paths run independently and cover all points
-    boolean IsCurrentAnswerPointsVerified() {
-        List<Boolean> reverse = new ArrayList<>();
-        reverse.add(true);
-        reverse.add(false);
-        for (Boolean b : reverse) {
-            for (int i = 0; i < GRAY; i++) {
-                for (int j = 0; j < GRAY; j++) {
-                    if (j == i) continue;
-                    for (int k = 0; k < GRAY; k++) {
-                        if (k == i || k == j) continue;
-                        Hex start = answerPoints.get(i).get(b ? 1 : 0);
-                        Hex end = answerPoints.get(i).get(b ? 0 : 1);
-                        if (findPath(i, start, end)) {
-                            start = answerPoints.get(j).get(b ? 1 : 0);
-                            end = answerPoints.get(j).get(b ? 0 : 1);
-                            if (findPath(j, start, end)) {
-                                start = answerPoints.get(k).get(b ? 1 : 0);
-                                end = answerPoints.get(k).get(b ? 0 : 1);
-                                if (findPath(k, start, end)) {
-                                    if (isGameEnd()) return true;
-                                    resetGame();
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    // logic for path finding is referred from
-    // https://www.redblobgames.com/pathfinding/a-star/introduction.html
-    // simple breath first search is implemented here
-    boolean findPath(int currentColor, Hex start, Hex end) {
-
-        Queue<Hex> frontier = new ArrayDeque<>();
-        frontier.add(start);
-
-        Map<OffsetCoord, Hex> came_from = new HashMap<>();
-        came_from.put(OffsetCoord.roffsetFromCube(OffsetCoord.ODD, start), null);
-
-        boolean hasAnswer = false;
-
-        while (!frontier.isEmpty()) {
-            Hex current = frontier.poll();
-
-            if (current == null) continue;
-
-            if (current.equals(end)) {
-                hasAnswer = true;
-                break;
-            }
-
-            // searching all neighbors
-            for (int direction = 0; direction < Hex.directions.size(); direction++) {
-                // note that this next is not mapped
-                Hex next = current.neighbor(direction);
-                OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, next);
-                // check this within the current radius
-                if (Math.abs(coord.row) > mapRadius || Math.abs(coord.col) > mapRadius) continue;
-                // get the mapped hex
-                next = hexMap.get(coord);
-                // not in the current hexagon map
-                if (next == null) continue;
-                // only gray (not selected) or own color
-                if (!(next.c == GRAY || next.c == currentColor)) continue;
-
-                if (came_from.get(coord) == null) {
-                    frontier.add(next);
-                    came_from.put(coord, current);
-                }
-            }
-        }
-
-        if (!hasAnswer) {
-            return false;
-        }
-
-        Hex current = end;
-
-        Set<Hex> path = pathPoints.get(currentColor);
-
-        while (!current.equals(start)) {
-            current.c = colors[currentColor];
-            path.add(current);
-            OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, current);
-            current = came_from.get(coord);
-            if (current == null) {
-                // should be the start point
-                break;
-            }
-        }
-        path.add(start);
-
-        return true;
-    }
-
-    boolean findPath2(int currentColor, Hex start, Hex end) {
-        // findpath() can be improved, but tired
-        return false;
-    }
-
 }
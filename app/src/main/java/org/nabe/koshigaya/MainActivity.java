@@ -144,6 +144,21 @@ public class MainActivity extends AppCompatActivity {
         restartBtn.setLayoutParams(lp);
         relativeLayout.addView(restartBtn);
 
+        Button hintBtn = new Button(this);
+        hintBtn.setText("Hint");
+        hintBtn.setOnClickListener(view -> {
+            game.requestHint();
+        });
+
+        lp = new RelativeLayout.LayoutParams(
+                RelativeLayout.LayoutParams.WRAP_CONTENT,
+                RelativeLayout.LayoutParams.WRAP_CONTENT);
+        lp.addRule(RelativeLayout.ALIGN_PARENT_TOP);
+        lp.addRule(RelativeLayout.ALIGN_PARENT_LEFT);
+
+        hintBtn.setLayoutParams(lp);
+        relativeLayout.addView(hintBtn);
+
         // Set the layout
         RelativeLayout.LayoutParams rlp = new RelativeLayout.LayoutParams(
                 RelativeLayout.LayoutParams.MATCH_PARENT,
@@ -0,0 +1,62 @@
+package org.nabe.koshigaya;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// opens the puzzle bank in the assets written by ./gradlew :core:generatePuzzleBank
+//
+// the asset is stored uncompressed in the apk (see noCompress in build.gradle)
+// so that it is memory mapped and only the pages of the served puzzles are read,
+// if it is compressed anyway it is read into memory in chunks
+class PuzzleAsset {
+
+    private static final String TAG = "PuzzleAsset";
+
+    static final String NAME = "puzzles.bin";
+
+    // the bank, null if the asset is missing or broken
+    static PuzzleBank open(Context context) {
+        AssetManager assets = context.getAssets();
+        try {
+            return new PuzzleBank(map(assets));
+        } catch (IOException e) {
+            Log.d(TAG, "cannot map " + NAME + ": " + e);
+        }
+        try {
+            return new PuzzleBank(read(assets));
+        } catch (IOException e) {
+            Log.w(TAG, "no puzzle bank: " + e);
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(AssetManager assets) throws IOException {
+        // openFd() fails for a compressed asset
+        try (AssetFileDescriptor fd = assets.openFd(NAME);
+             FileInputStream in = fd.createInputStream()) {
+            // the mapping stays valid after the channel is closed
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        }
+    }
+
+    private static ByteBuffer read(AssetManager assets) throws IOException {
+        try (InputStream in = assets.open(NAME)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// uniqueness check of generated puzzles, counting the solutions up to 2
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CountBenchmark {
+
+    @Param({"2", "3", "4"})
+    public int radius;
+
+    private PuzzleGenerator generator;
+    private SolutionCounter counter;
+    private Puzzle puzzle;
+
+    @Setup
+    public void setup() {
+        HexGrid grid = new HexGrid(radius);
+        generator = new PuzzleGenerator(grid, new Random(1));
+        counter = new SolutionCounter(grid);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextPuzzle() {
+        puzzle = generator.generate(GameBoard.DEFAULT_COLORS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SolutionCounter.Result count() {
+        return counter.count(puzzle.endpoints, 2);
+    }
+}
@@ -0,0 +1,80 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// DeadEndDetector.update() on a board with half of each path drawn, against
+// the least an incremental update would do after a move. a move takes a
+// gray hex, which may split its region, and union-find cannot split, so an
+// incremental update would refill the region of the hex at least
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeadEndBenchmark {
+
+    @Param({"4", "6", "8"})
+    public int radius;
+
+    private GameBoard board;
+    private DeadEndDetector detector;
+    private int head;
+    // refill of the region next to the head
+    private int[] queue;
+    private int[] seen;
+    private int stamp = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new GameBoard(radius);
+        board.generateGame(1);
+        for (int c = 0; c < board.getColorCount(); c++) {
+            board.clearPath(c, board.getPath(c).size() / 2);
+        }
+        detector = new DeadEndDetector(board);
+        head = detector.getHead(GameBoard.YELLOW);
+        queue = new int[board.getGrid().size()];
+        seen = new int[board.getGrid().size()];
+    }
+
+    @Benchmark
+    public boolean update() {
+        return detector.update();
+    }
+
+    @Benchmark
+    public int refillRegion() {
+        HexGrid grid = board.getGrid();
+        stamp++;
+        int tail = 0;
+        for (int n : grid.neighbors(head)) {
+            if (n != HexGrid.NONE && board.getColor(n) == GameBoard.GRAY && seen[n] != stamp) {
+                seen[n] = stamp;
+                queue[tail++] = n;
+            }
+        }
+        for (int i = 0; i < tail; i++) {
+            for (int n : grid.neighbors(queue[i])) {
+                if (n != HexGrid.NONE && board.getColor(n) == GameBoard.GRAY && seen[n] != stamp) {
+                    seen[n] = stamp;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,54 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// a single search between the end points of the first color,
+// by each of the searches of GameBoard.findPathBy()
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FindPathBenchmark {
+
+    @Param({"2", "3", "4"})
+    public int radius;
+
+    // GameBoard.SEARCH_BFS, SEARCH_ASTAR and SEARCH_BIDIRECTIONAL
+    @Param({"0", "1", "2"})
+    public int search;
+
+    private GameBoard board;
+    private int start;
+    private int end;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new GameBoard(radius);
+        board.placeAnswerPoints();
+        start = board.getAnswerPoint(GameBoard.YELLOW, 0);
+        end = board.getAnswerPoint(GameBoard.YELLOW, 1);
+    }
+
+    @Benchmark
+    public boolean findPath() {
+        boolean found = board.findPathBy(search, GameBoard.YELLOW, start, end);
+        // findPath() leaves the path on the board
+        board.clearPath(GameBoard.YELLOW, 0);
+        return found;
+    }
+}
@@ -0,0 +1,46 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// the former puzzle generation by random end points including all the
+// rejected candidates, to compare with GenerateBenchmark
+//
+// radius 4 is not measured, random end points on that map are rarely
+// solvable and proving it takes the exact solver too long
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenerateByRejectionBenchmark {
+
+    @Param({"2", "3"})
+    public int radius;
+
+    private GameBoard board;
+
+    @Setup
+    public void setup() {
+        board = new GameBoard(radius);
+    }
+
+    // generated puzzles per second
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public GameBoard generateGameByRejection() {
+        board.generateGameByRejection();
+        return board;
+    }
+}
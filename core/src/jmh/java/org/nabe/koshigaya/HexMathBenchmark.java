@@ -0,0 +1,96 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// neighbor checks and coordinate conversions over every hex of the map,
+// the scores are per single call
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HexMathBenchmark {
+
+    // total hexes of the radius 4 map, used as the number of calls per invocation
+    private static final int CALLS = 61;
+
+    @Param({"2", "3", "4"})
+    public int radius;
+
+    private HexGrid grid;
+    private int[] indexes;
+    private Hex[] hexes;
+    private OffsetCoord[] coords;
+
+    @Setup
+    public void setup() {
+        grid = new HexGrid(radius);
+        // repeat the hexes of the map so that every radius runs the same number of calls
+        indexes = new int[CALLS + 1];
+        hexes = new Hex[CALLS + 1];
+        coords = new OffsetCoord[CALLS];
+        for (int i = 0; i < hexes.length; i++) {
+            indexes[i] = i % grid.size();
+            hexes[i] = grid.hex(indexes[i]);
+        }
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = grid.coord(indexes[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void isNeighbor(Blackhole bh) {
+        for (int i = 0; i < CALLS; i++) {
+            bh.consume(hexes[i].isNeighbor(hexes[i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void distance(Blackhole bh) {
+        for (int i = 0; i < CALLS; i++) {
+            bh.consume(hexes[i].distance(hexes[i + 1]));
+        }
+    }
+
+    // the same check on the precomputed neighbor table
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void gridIsNeighbor(Blackhole bh) {
+        for (int i = 0; i < CALLS; i++) {
+            bh.consume(grid.isNeighbor(indexes[i], indexes[i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void roffsetFromCube(Blackhole bh) {
+        for (int i = 0; i < CALLS; i++) {
+            bh.consume(OffsetCoord.roffsetFromCube(OffsetCoord.ODD, hexes[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void roffsetToCube(Blackhole bh) {
+        for (int i = 0; i < CALLS; i++) {
+            bh.consume(OffsetCoord.roffsetToCube(OffsetCoord.ODD, coords[i]));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// speculative generation by random end points on the threads, sampled to
+// see the tail latency (p99, p999) shrinking with the threads
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 4)
+public class ParallelGenerateBenchmark {
+
+    @Param({"3"})
+    public int radius;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ParallelGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new ParallelGenerator(new HexGrid(radius), threads, new SplitMix64(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        generator.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Puzzle generateByRejection() throws InterruptedException {
+        return generator.generateByRejection(GameBoard.DEFAULT_COLORS);
+    }
+}
@@ -0,0 +1,53 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// difficulty rating of generated puzzles
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RateBenchmark {
+
+    @Param({"2", "3", "4"})
+    public int radius;
+
+    private PuzzleGenerator generator;
+    private DifficultyRater rater;
+    private Puzzle puzzle;
+
+    @Setup
+    public void setup() {
+        HexGrid grid = new HexGrid(radius);
+        generator = new PuzzleGenerator(grid, new Random(1));
+        rater = new DifficultyRater(grid);
+        // the bands are calibrated on the first rating
+        rater.rate(generator.generate(GameBoard.DEFAULT_COLORS));
+    }
+
+    @Setup(Level.Invocation)
+    public void nextPuzzle() {
+        puzzle = generator.generate(GameBoard.DEFAULT_COLORS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DifficultyRater.Rating rate() {
+        return rater.rate(puzzle);
+    }
+}
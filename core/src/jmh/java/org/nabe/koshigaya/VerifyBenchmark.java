@@ -0,0 +1,48 @@
+package org.nabe.koshigaya;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// latency of a single verification of random answer points,
+// i.e. mostly of the candidates rejected by generateGame()
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VerifyBenchmark {
+
+    @Param({"2", "3"})
+    public int radius;
+
+    private GameBoard board;
+
+    @Setup(Level.Trial)
+    public void setupBoard() {
+        board = new GameBoard(radius);
+    }
+
+    // new random answer points before each verification
+    @Setup(Level.Invocation)
+    public void setupAnswerPoints() {
+        board.placeAnswerPoints();
+    }
+
+    @Benchmark
+    public boolean verifyAnswerPoints() {
+        return board.IsCurrentAnswerPointsVerified();
+    }
+}
@@ -0,0 +1,158 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+
+// hexagon map of radius 4 or less as a 64 bit board, bit i is the hex of index i
+//
+// a set of hexes is a long and the neighbors of all of them are found at once
+// by shifting the set. the rows have different lengths, so the shift to the
+// neighbor in a direction differs by row, and the hexes are grouped by the
+// shift with a mask for each group. a radius 4 map needs 12 groups
+public class BitGrid {
+
+    // largest radius fitting in 64 bits, 61 hexes
+    public static final int MAX_RADIUS = 4;
+
+    private final HexGrid grid;
+    // all the hexes of the map
+    private final long all;
+    // neighbors of each hex
+    private final long[] neighbors;
+    // shift to the neighbor and the hexes shifted by it, for each direction
+    private final int[][] directionShifts;
+    private final long[][] directionMasks;
+    // the same for all the directions together
+    private final int[] shifts;
+    private final long[] masks;
+
+    public static boolean isSupported(int radius) {
+        return radius <= MAX_RADIUS;
+    }
+
+    public BitGrid(HexGrid grid) {
+        if (!isSupported(grid.getRadius())) {
+            throw new IllegalArgumentException("radius " + grid.getRadius() + " does not fit in 64 bits");
+        }
+        this.grid = grid;
+        int size = grid.size();
+        all = size == 64 ? -1L : (1L << size) - 1;
+
+        neighbors = new long[size];
+        for (int i = 0; i < size; i++) {
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int n = grid.neighbor(i, direction);
+                if (n != HexGrid.NONE) neighbors[i] |= bit(n);
+            }
+        }
+
+        directionShifts = new int[HexGrid.DIRECTIONS][];
+        directionMasks = new long[HexGrid.DIRECTIONS][];
+        // shifts run from -size to size
+        long[] byShift = new long[size * 2 + 1];
+        long[] allByShift = new long[size * 2 + 1];
+        for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+            Arrays.fill(byShift, 0);
+            for (int i = 0; i < size; i++) {
+                int n = grid.neighbor(i, direction);
+                if (n == HexGrid.NONE) continue;
+                byShift[n - i + size] |= bit(i);
+                allByShift[n - i + size] |= bit(i);
+            }
+            int count = countGroups(byShift);
+            directionShifts[direction] = new int[count];
+            directionMasks[direction] = new long[count];
+            groups(byShift, size, directionShifts[direction], directionMasks[direction]);
+        }
+        int count = countGroups(allByShift);
+        shifts = new int[count];
+        masks = new long[count];
+        groups(allByShift, size, shifts, masks);
+    }
+
+    private static int countGroups(long[] byShift) {
+        int count = 0;
+        for (long mask : byShift) {
+            if (mask != 0) count++;
+        }
+        return count;
+    }
+
+    private static void groups(long[] byShift, int size, int[] shifts, long[] masks) {
+        int count = 0;
+        for (int i = 0; i < byShift.length; i++) {
+            if (byShift[i] == 0) continue;
+            shifts[count] = i - size;
+            masks[count] = byShift[i];
+            count++;
+        }
+    }
+
+    public HexGrid getGrid() {
+        return grid;
+    }
+
+    public static long bit(int index) {
+        return 1L << index;
+    }
+
+    // all the hexes of the map
+    public long all() {
+        return all;
+    }
+
+    // neighbors of the hex
+    public long neighbors(int index) {
+        return neighbors[index];
+    }
+
+    public boolean isNeighbor(int a, int b) {
+        return (neighbors[a] & bit(b)) != 0;
+    }
+
+    // the neighbors in the direction of the hexes
+    public long shift(long hexes, int direction) {
+        int[] s = directionShifts[direction];
+        long[] m = directionMasks[direction];
+        long result = 0;
+        for (int i = 0; i < s.length; i++) {
+            result |= move(hexes & m[i], s[i]);
+        }
+        return result;
+    }
+
+    // all the neighbors of the hexes, which may include the hexes themselves
+    public long expand(long hexes) {
+        long result = 0;
+        for (int i = 0; i < shifts.length; i++) {
+            result |= move(hexes & masks[i], shifts[i]);
+        }
+        return result;
+    }
+
+    private static long move(long hexes, int shift) {
+        return shift > 0 ? hexes << shift : hexes >>> -shift;
+    }
+
+    // hexes having two or more neighbors in the hexes
+    public long atLeastTwo(long hexes) {
+        long one = 0;
+        long two = 0;
+        for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+            long n = shift(hexes, direction);
+            two |= one & n;
+            one |= n;
+        }
+        return two;
+    }
+
+    // hexes reachable from the seed through the area, flood fill of all the
+    // hexes of a front at once
+    public long fill(long seed, long area) {
+        long filled = seed & area;
+        while (true) {
+            long next = (filled | expand(filled)) & area;
+            if (next == filled) return filled;
+            filled = next;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.nabe.koshigaya;
+
+// drawing operations of BoardRenderer, implemented on android.graphics.Canvas
+// by the app and by a recording canvas in the tests
+//
+// colors are the color indexes of GameBoard, GRAY for the hexes in no path,
+// so the implementation keeps a prebuilt paint for each of them, 0 to GRAY
+public interface BoardCanvas {
+
+    void drawCircle(float x, float y, float radius, int color);
+
+    // replaces the path of the color by the lines through the points,
+    // called only when the path of the color changed
+    void setPath(int color, float[] x, float[] y, int count);
+
+    // draws the path last set for the color
+    void drawPath(int color);
+
+    // marks the hex as a problem, e.g. a dead end, in a color of no path
+    void drawWarning(float x, float y, float radius);
+}
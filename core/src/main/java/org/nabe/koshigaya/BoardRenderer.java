@@ -0,0 +1,189 @@
+package org.nabe.koshigaya;
+
+// draws a GameBoard on a BoardCanvas without allocating anything per frame
+//
+// the centers of the hexes are computed once by layout(), and the path of a
+// color is passed to the canvas only when GameBoard.getPathVersion() tells that
+// it changed since the last frame, so the canvas rebuilds its path only then
+//
+// the board is drawn in two layers, the static layer of the gray hexes and the
+// start and end points which changes only with the puzzle, and the paths on it.
+// so the static layer can be cached in a bitmap while the paths change
+public class BoardRenderer {
+
+    // hit radius of a hex in the point size. a point inside the board is at
+    // most 5/8 of the point size from the nearest center, the circumradius of
+    // the triangle of three neighbor centers (a row apart and shifted by half
+    // a point). 3/4 is a little more so that the centers rounded to pixels
+    // leave no gap and a finger just past the outer points still hits them,
+    // and it is less than the point size so a touch far outside hits nothing
+    private static final float HIT_RADIUS = 3 / 4f;
+
+    private final GameBoard board;
+    private final HexGrid grid;
+    private final int mapRadius;
+
+    // square size of each point
+    private int pointSize;
+    // radius of each point circle
+    private int pointRadius;
+    // size of path in pixel
+    private int strokeWidth;
+    // centers of the hexes by index
+    private final float[] centerX;
+    private final float[] centerY;
+    // hexes under the points of the canvas
+    private HitGrid hitGrid;
+
+    // points of a path passed to the canvas
+    private final float[] pathX;
+    private final float[] pathY;
+    // path version of each color last passed to the canvas
+    private final int[] drawnVersions;
+    private boolean pathsDrawn = false;
+
+    public BoardRenderer(GameBoard board) {
+        this.board = board;
+        this.grid = board.getGrid();
+        this.mapRadius = grid.getRadius();
+        centerX = new float[grid.size()];
+        centerY = new float[grid.size()];
+        pathX = new float[grid.size()];
+        pathY = new float[grid.size()];
+        drawnVersions = new int[board.getColorCount()];
+    }
+
+    // computes the sizes and the centers for the square canvas
+    public void layout(int canvasSize) {
+        int hexSize = mapRadius * 2 + 1;
+
+        pointSize = canvasSize / hexSize;
+
+        pointRadius = (pointSize / 2) * 4 / 5;
+
+        strokeWidth = pointRadius / 2;
+
+        int offset = pointSize / 2;
+        for (int i = 0; i < grid.size(); i++) {
+            OffsetCoord coord = grid.coord(i);
+            centerX[i] = offset + (coord.col + mapRadius) * pointSize + (coord.row & 1) * pointSize / 2;
+            centerY[i] = offset + (coord.row + mapRadius) * pointSize;
+        }
+        hitGrid = new HitGrid(centerX, centerY, canvasSize, pointSize, pointSize * HIT_RADIUS);
+        pathsDrawn = false;
+    }
+
+    public int getPointSize() {
+        return pointSize;
+    }
+
+    public int getPointRadius() {
+        return pointRadius;
+    }
+
+    public int getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public float getCenterX(int index) {
+        return centerX[index];
+    }
+
+    public float getCenterY(int index) {
+        return centerY[index];
+    }
+
+    // index of the hex at the point, HexGrid.NONE if none
+    public int hexAt(float x, float y) {
+        return hitGrid.hexAt(x, y);
+    }
+
+    // distance between points small enough not to jump over a hex on the way
+    public float getHitStep() {
+        return hitGrid.getCellSize();
+    }
+
+    // passes all the paths to the canvas again on the next frame,
+    // e.g. when the canvas lost them
+    public void invalidatePaths() {
+        pathsDrawn = false;
+    }
+
+    public void draw(BoardCanvas canvas) {
+        drawStatic(canvas);
+        drawPaths(canvas);
+    }
+
+    // the gray hexes and the start and end points
+    public void drawStatic(BoardCanvas canvas) {
+        // draws hex points
+        for (int i = 0; i < grid.size(); i++) {
+            canvas.drawCircle(centerX[i], centerY[i], pointRadius, GameBoard.GRAY);
+        }
+
+        // draws both start and end points on top of gray points
+        for (int c = 0; c < board.getColorCount(); c++) {
+            for (int i = 0; i < 2; i++) {
+                int hex = board.getAnswerPoint(c, i);
+                canvas.drawCircle(centerX[hex], centerY[hex], pointRadius, c);
+            }
+        }
+    }
+
+    public void drawPaths(BoardCanvas canvas) {
+        // draws paths, passing the changed ones
+        for (int c = 0; c < board.getColorCount(); c++) {
+            int version = board.getPathVersion(c);
+            if (!pathsDrawn || drawnVersions[c] != version) {
+                CellPath path = board.getPath(c);
+                int count = path.size();
+                for (int i = 0; i < count; i++) {
+                    int index = path.get(i);
+                    pathX[i] = centerX[index];
+                    pathY[i] = centerY[index];
+                }
+                canvas.setPath(c, pathX, pathY, count);
+                drawnVersions[c] = version;
+            }
+            canvas.drawPath(c);
+        }
+        pathsDrawn = true;
+    }
+
+    // marks the hex to add next to the path of the color, see HintEngine
+    public void drawHint(BoardCanvas canvas, int color, int cell) {
+        canvas.drawCircle(centerX[cell], centerY[cell], pointRadius / 2f, color);
+    }
+
+    // marks the gray hexes which can never be filled and the heads of the
+    // colors cut off from their end points
+    public void drawDeadEnds(BoardCanvas canvas, DeadEndDetector detector) {
+        if (!detector.isDeadEnd()) return;
+        for (int i = 0; i < grid.size(); i++) {
+            if (detector.isIsolated(i)) canvas.drawWarning(centerX[i], centerY[i], pointRadius);
+        }
+        for (int c = 0; c < board.getColorCount(); c++) {
+            if (!detector.isCut(c)) continue;
+            int head = detector.getHead(c);
+            canvas.drawWarning(centerX[head], centerY[head], pointRadius);
+        }
+    }
+
+    // the area changed by the path segment between the hexes as
+    // left, top, right and bottom, i.e. both of the hexes and the stroke
+    public void getSegmentBounds(int a, int b, int[] bounds) {
+        int margin = pointRadius + strokeWidth;
+        bounds[0] = (int) Math.min(centerX[a], centerX[b]) - margin;
+        bounds[1] = (int) Math.min(centerY[a], centerY[b]) - margin;
+        bounds[2] = (int) Math.max(centerX[a], centerX[b]) + margin + 1;
+        bounds[3] = (int) Math.max(centerY[a], centerY[b]) + margin + 1;
+    }
+
+    // draws the hexes in the colors of the palette while waiting for a puzzle,
+    // see LoadingAnimation
+    public void drawWaiting(BoardCanvas canvas, int[] palette) {
+        for (int i = 0; i < grid.size(); i++) {
+            canvas.drawCircle(centerX[i], centerY[i], pointRadius, palette[i]);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+
+// a path of distinct hexes in the order they were added
+//
+// the hex indexes are kept in an int stack and the position of every hex in
+// another int array by hex index, so where a hex is in the path, the last hex
+// and cutting the path after a position need no scan of the path and no
+// allocation. truncating to a position costs only the hexes removed
+public class CellPath {
+
+    // position of a hex not in the path
+    public static final int NONE = -1;
+
+    // hex indexes from the first one
+    private final int[] cells;
+    // position in cells by hex index, NONE if not in the path
+    private final int[] positions;
+    private int size = 0;
+
+    // for the hexes 0 to cellCount - 1
+    public CellPath(int cellCount) {
+        cells = new int[cellCount];
+        positions = new int[cellCount];
+        Arrays.fill(positions, NONE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // hex at the position
+    public int get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("no hex at " + i);
+        return cells[i];
+    }
+
+    // first hex, HexGrid.NONE if empty
+    public int first() {
+        return size == 0 ? HexGrid.NONE : cells[0];
+    }
+
+    // last hex, HexGrid.NONE if empty
+    public int last() {
+        return size == 0 ? HexGrid.NONE : cells[size - 1];
+    }
+
+    // position of the hex in the path, NONE if not in it
+    public int indexOf(int cell) {
+        return positions[cell];
+    }
+
+    public boolean contains(int cell) {
+        return positions[cell] != NONE;
+    }
+
+    // appends the hex, false if it is already in the path
+    public boolean add(int cell) {
+        if (positions[cell] != NONE) return false;
+        positions[cell] = size;
+        cells[size++] = cell;
+        return true;
+    }
+
+    // keeps the first length hexes and removes the rest
+    public void truncate(int length) {
+        if (length < 0) length = 0;
+        while (size > length) {
+            positions[cells[--size]] = NONE;
+        }
+    }
+
+    public void clear() {
+        truncate(0);
+    }
+}
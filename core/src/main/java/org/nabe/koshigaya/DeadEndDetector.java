@@ -0,0 +1,167 @@
+package org.nabe.koshigaya;
+
+// tells while the paths are drawn whether the board can no longer be finished
+//
+// a path runs from the head of its color to the end point left only through
+// gray hexes, so the whole of it is in one gray region, i.e. a set of gray
+// hexes connected to each other. so the board is a dead end if
+// 1. a color has no region next to both of its head and its end point left,
+//    and the head is not next to the end point either - the color is cut off
+// 2. a region is next to the head and the end point of no color - the region
+//    can never be filled
+//
+// the regions are found by union-find over the gray hexes, linear in the size
+// of the map and with no allocation. it is rebuilt on every update as a move
+// takes a gray hex, which may split its region, and union-find cannot split.
+// so an incremental update would refill the region of the hex at least, and
+// the rebuild costs about twice that, 0.9us on radius 4, 1.6us on radius 6
+// and 3.5us on radius 8 (DeadEndBenchmark), far below a frame
+public class DeadEndDetector {
+
+    private final GameBoard board;
+    private final HexGrid grid;
+    private final int size;
+
+    // union-find parent of each gray hex, the root points to itself
+    private final int[] parent;
+    private final int[] rank;
+    // stamp of the color whose head touches the region, by root
+    private final int[] touched;
+    private int touchStamp = 0;
+    // update() stamp if a color passes through the region, by root
+    private final int[] passed;
+    private int passStamp = 0;
+
+    // results of the last update()
+    private final boolean[] isolated;
+    private int isolatedCount;
+    private final boolean[] cut;
+    private int cutCount;
+
+    public DeadEndDetector(GameBoard board) {
+        this.board = board;
+        this.grid = board.getGrid();
+        this.size = grid.size();
+        parent = new int[size];
+        rank = new int[size];
+        touched = new int[size];
+        passed = new int[size];
+        isolated = new boolean[size];
+        cut = new boolean[board.getColorCount()];
+    }
+
+    // checks the board as it is now, true if it is a dead end
+    public boolean update() {
+        // the gray regions
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+            rank[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            if (board.getColor(i) != GameBoard.GRAY) continue;
+            int[] neighbors = grid.neighbors(i);
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int j = neighbors[direction];
+                // each pair once
+                if (j > i && board.getColor(j) == GameBoard.GRAY) union(i, j);
+            }
+        }
+
+        // the regions each color can pass through
+        passStamp++;
+        cutCount = 0;
+        for (int c = 0; c < cut.length; c++) {
+            cut[c] = false;
+            if (board.isPathConnected(c)) continue;
+            int head = getHead(c);
+            int end = getEnd(c);
+            boolean reachable = grid.isNeighbor(head, end);
+
+            touchStamp++;
+            int[] neighbors = grid.neighbors(head);
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int n = neighbors[direction];
+                if (n != HexGrid.NONE && board.getColor(n) == GameBoard.GRAY) touched[find(n)] = touchStamp;
+            }
+            neighbors = grid.neighbors(end);
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int n = neighbors[direction];
+                if (n == HexGrid.NONE || board.getColor(n) != GameBoard.GRAY) continue;
+                int root = find(n);
+                if (touched[root] == touchStamp) {
+                    passed[root] = passStamp;
+                    reachable = true;
+                }
+            }
+            if (!reachable) {
+                cut[c] = true;
+                cutCount++;
+            }
+        }
+
+        // and the regions no color can pass through
+        isolatedCount = 0;
+        for (int i = 0; i < size; i++) {
+            isolated[i] = board.getColor(i) == GameBoard.GRAY && passed[find(i)] != passStamp;
+            if (isolated[i]) isolatedCount++;
+        }
+        return isDeadEnd();
+    }
+
+    // the hex the path of the color goes on from, its first end point if no path
+    public int getHead(int c) {
+        CellPath path = board.getPath(c);
+        return path.isEmpty() ? board.getAnswerPoint(c, 0) : path.last();
+    }
+
+    // the end point the path of the color is heading to
+    public int getEnd(int c) {
+        int start = board.getPath(c).isEmpty() ? board.getAnswerPoint(c, 0) : board.getPath(c).first();
+        return start == board.getAnswerPoint(c, 0) ? board.getAnswerPoint(c, 1) : board.getAnswerPoint(c, 0);
+    }
+
+    public boolean isDeadEnd() {
+        return isolatedCount > 0 || cutCount > 0;
+    }
+
+    // true if the hex is gray and can never be filled
+    public boolean isIsolated(int cell) {
+        return isolated[cell];
+    }
+
+    public int getIsolatedCount() {
+        return isolatedCount;
+    }
+
+    // true if the color can no longer reach its end point
+    public boolean isCut(int c) {
+        return cut[c];
+    }
+
+    public int getCutCount() {
+        return cutCount;
+    }
+
+    private int find(int i) {
+        // path halving
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) return;
+        if (rank[a] < rank[b]) {
+            parent[a] = b;
+        } else if (rank[a] > rank[b]) {
+            parent[b] = a;
+        } else {
+            parent[b] = a;
+            rank[a]++;
+        }
+    }
+}
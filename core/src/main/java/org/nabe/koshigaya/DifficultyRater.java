@@ -0,0 +1,307 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+
+// rates how hard a puzzle is by solving it as a player would
+//
+// the paths grow from both of their end points by two deductions until none
+// applies, and then by a guess
+// 1. a head with only one way to go, a free neighbor or the other head of
+//    its color, goes there
+// 2. a free hex with only two neighbors it can be passed through from, free
+//    hexes or heads, takes the head among them
+// both are sound, they hold for every solution of the paths so far, so the
+// move found is the move of the solution. a guess is the move of the
+// solution from the head with the fewest ways to go, and a search would have
+// to try the other ways too. so a puzzle solved mostly by the deductions is
+// easy, and the more and the wider the guesses, the harder it is
+//
+// the solution is known by construction, see PuzzleGenerator, so no search
+// is needed. a rating is a loop over the hexes for each move, about 40us on
+// radius 4, and allocates nothing but the Rating
+//
+// the scores grow with the map and fall with the colors, so one set of
+// bands would put almost every puzzle of a map and colors in one band. the
+// bands are cut at the quartiles of the scores of CALIBRATION_PUZZLES seeded
+// puzzles instead, rated on the first rating of each number of colors (some
+// 100ms), so about a quarter of the generated puzzles is in each band
+public class DifficultyRater {
+
+    // bands of the score
+    public static final int EASY = 0;
+    public static final int NORMAL = 1;
+    public static final int HARD = 2;
+    public static final int EXPERT = 3;
+    public static final int BANDS = 4;
+    // puzzles rated to find the bands of a number of colors
+    private static final int CALIBRATION_PUZZLES = 128;
+
+    public static class Rating {
+        // moves to solve, i.e. the edges of the paths
+        public final int moves;
+        // moves found by the deductions
+        public final int forcedMoves;
+        // moves guessed, and the ways to go they were chosen from in total
+        public final int guesses;
+        public final int guessOptions;
+        // variance of the path lengths divided by the squared mean
+        public final double lengthVariance;
+        // 0 to 100, see score()
+        public final int score;
+        // band of the score on the map and the colors
+        public final int band;
+
+        Rating(int moves, int forcedMoves, int guesses, int guessOptions, double lengthVariance,
+               int score, int band) {
+            this.moves = moves;
+            this.forcedMoves = forcedMoves;
+            this.guesses = guesses;
+            this.guessOptions = guessOptions;
+            this.lengthVariance = lengthVariance;
+            this.score = score;
+            this.band = band;
+        }
+
+        // ways to go of a guess on average, 0 if none
+        public double getBranchingFactor() {
+            return guesses == 0 ? 0 : (double) guessOptions / guesses;
+        }
+
+        public int getBand() {
+            return band;
+        }
+    }
+
+    private final HexGrid grid;
+    private final int size;
+    // color of each hex filled, -1 if free
+    private final int[] colors;
+    // heads of the colors, the position in the solution path of each side
+    private int[] heads0;
+    private int[] heads1;
+    // whether the heads of each color are joined
+    private boolean[] done;
+    private int[][] paths;
+
+    // lowest score of each band for each number of colors, made on the
+    // first rating of the colors
+    private final int[][] bandScores;
+    // created on the first calibration
+    private PuzzleGenerator calibrator;
+    private int[] calibrationScores;
+
+    public DifficultyRater(HexGrid grid) {
+        this.grid = grid;
+        this.size = grid.size();
+        colors = new int[size];
+        bandScores = new int[PuzzleGenerator.maxColorCount(grid) + 1][];
+    }
+
+    // band of the score of a puzzle of the colors on the map
+    public int bandOf(int score, int colorCount) {
+        return bandOf(score, bandScores(colorCount));
+    }
+
+    private static int bandOf(int score, int[] lowest) {
+        for (int band = BANDS - 1; band > 0; band--) {
+            if (score >= lowest[band]) return band;
+        }
+        return EASY;
+    }
+
+    // the quartiles of the scores, each band at least one higher than the
+    // band before, so where most of the puzzles of a map and colors have a
+    // single score, those are all EASY and the few others share the rest
+    private int[] bandScores(int colorCount) {
+        if (colorCount < 1 || colorCount >= bandScores.length) {
+            throw new IllegalArgumentException(colorCount + " colors for radius " + grid.getRadius());
+        }
+        if (bandScores[colorCount] == null) {
+            if (calibrator == null) {
+                calibrator = new PuzzleGenerator(grid, new SplitMix64(0));
+                calibrationScores = new int[CALIBRATION_PUZZLES];
+            }
+            for (int i = 0; i < CALIBRATION_PUZZLES; i++) {
+                calibrationScores[i] = measure(calibrator.generate(colorCount, (long) i), null).score;
+            }
+            Arrays.sort(calibrationScores);
+            int[] lowest = new int[BANDS];
+            for (int band = 1; band < BANDS; band++) {
+                lowest[band] = Math.max(calibrationScores[band * CALIBRATION_PUZZLES / BANDS], lowest[band - 1] + 1);
+            }
+            bandScores[colorCount] = lowest;
+        }
+        return bandScores[colorCount];
+    }
+
+    // the puzzle must have its solution, see Puzzle.paths
+    public Rating rate(Puzzle puzzle) {
+        if (puzzle.radius != grid.getRadius()) {
+            throw new IllegalArgumentException("puzzle of radius " + puzzle.radius
+                    + " for radius " + grid.getRadius());
+        }
+        if (puzzle.paths == null) throw new IllegalArgumentException("puzzle without the solution");
+        return measure(puzzle, bandScores(puzzle.getColorCount()));
+    }
+
+    // rates the puzzle, the band is EASY without the band scores
+    private Rating measure(Puzzle puzzle, int[] lowest) {
+        int colorCount = puzzle.getColorCount();
+        if (heads0 == null || heads0.length != colorCount) {
+            heads0 = new int[colorCount];
+            heads1 = new int[colorCount];
+            done = new boolean[colorCount];
+        }
+        paths = puzzle.paths;
+
+        for (int i = 0; i < size; i++) {
+            colors[i] = -1;
+        }
+        int moves = 0;
+        long lengthSum = 0;
+        long lengthSquares = 0;
+        for (int c = 0; c < colorCount; c++) {
+            int[] path = paths[c];
+            heads0[c] = 0;
+            heads1[c] = path.length - 1;
+            done[c] = false;
+            colors[path[0]] = c;
+            colors[path[path.length - 1]] = c;
+            moves += path.length - 1;
+            lengthSum += path.length;
+            lengthSquares += (long) path.length * path.length;
+        }
+        double mean = (double) lengthSum / colorCount;
+        double lengthVariance = ((double) lengthSquares / colorCount - mean * mean) / (mean * mean);
+
+        int forcedMoves = 0;
+        int guesses = 0;
+        int guessOptions = 0;
+        for (int move = 0; move < moves; move++) {
+            if (forcedMove(colorCount)) {
+                forcedMoves++;
+                continue;
+            }
+            // the head with the fewest ways to go
+            int bestColor = -1;
+            int bestSide = 0;
+            int bestOptions = Integer.MAX_VALUE;
+            for (int c = 0; c < colorCount; c++) {
+                if (isDone(c)) continue;
+                for (int side = 0; side < 2; side++) {
+                    int options = countOptions(c, side);
+                    if (options < bestOptions) {
+                        bestOptions = options;
+                        bestColor = c;
+                        bestSide = side;
+                    }
+                }
+            }
+            guesses++;
+            guessOptions += bestOptions;
+            advance(bestColor, bestSide);
+        }
+
+        int score = score(moves, forcedMoves, guesses, guessOptions, lengthVariance);
+        return new Rating(moves, forcedMoves, guesses, guessOptions, lengthVariance, score,
+                lowest == null ? EASY : bandOf(score, lowest));
+    }
+
+    // 0 to 100 by the share of the moves guessed mostly, and by the ways to
+    // go of the guesses and the uneven lengths of the paths less. the ranges
+    // are those of the generated puzzles, 30% to 80% of the moves are guessed
+    // from 2 to 3 ways on average
+    private static int score(int moves, int forcedMoves, int guesses, int guessOptions, double lengthVariance) {
+        if (moves == 0) return 0;
+        double guessed = clamp(((double) guesses / moves - 0.3) / 0.5);
+        double branching = guesses == 0 ? 0 : clamp((double) guessOptions / guesses - 2);
+        double uneven = clamp(lengthVariance);
+        return (int) Math.round(100 * (0.6 * guessed + 0.3 * branching + 0.1 * uneven));
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    // makes a move by the deductions, false if none applies
+    private boolean forcedMove(int colorCount) {
+        // 1. a head with only one way to go
+        for (int c = 0; c < colorCount; c++) {
+            if (isDone(c)) continue;
+            for (int side = 0; side < 2; side++) {
+                if (countOptions(c, side) == 1) {
+                    advance(c, side);
+                    return true;
+                }
+            }
+        }
+        // 2. a free hex passed through from only two neighbors
+        for (int i = 0; i < size; i++) {
+            if (colors[i] >= 0) continue;
+            int entries = 0;
+            int head = HexGrid.NONE;
+            int[] neighbors = grid.neighbors(i);
+            for (int direction = 0; direction < HexGrid.DIRECTIONS && entries <= 2; direction++) {
+                int n = neighbors[direction];
+                if (n == HexGrid.NONE) continue;
+                if (colors[n] < 0) {
+                    entries++;
+                } else if (isHead(n)) {
+                    entries++;
+                    head = n;
+                }
+            }
+            if (entries == 2 && head != HexGrid.NONE) {
+                advanceHead(head);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDone(int c) {
+        return done[c];
+    }
+
+    private int head(int c, int side) {
+        return paths[c][side == 0 ? heads0[c] : heads1[c]];
+    }
+
+    // true if the hex is a head of a color not done
+    private boolean isHead(int hex) {
+        int c = colors[hex];
+        return !isDone(c) && (head(c, 0) == hex || head(c, 1) == hex);
+    }
+
+    // free neighbors of the head, and the other head if next to it
+    private int countOptions(int c, int side) {
+        int head = head(c, side);
+        int other = head(c, 1 - side);
+        int options = 0;
+        int[] neighbors = grid.neighbors(head);
+        for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+            int n = neighbors[direction];
+            if (n != HexGrid.NONE && (colors[n] < 0 || n == other)) options++;
+        }
+        return options;
+    }
+
+    // moves the head of the side to the next hex of the solution,
+    // or joins the heads if they are next in the solution
+    private void advance(int c, int side) {
+        if (heads0[c] + 1 == heads1[c]) {
+            done[c] = true;
+        } else if (side == 0) {
+            heads0[c]++;
+            colors[paths[c][heads0[c]]] = c;
+        } else {
+            heads1[c]--;
+            colors[paths[c][heads1[c]]] = c;
+        }
+    }
+
+    private void advanceHead(int hex) {
+        int c = colors[hex];
+        advance(c, head(c, 0) == hex ? 0 : 1);
+    }
+}
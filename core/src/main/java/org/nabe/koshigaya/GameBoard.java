@@ -0,0 +1,689 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+
+// the hexagon board, the puzzle generator and the answer checker,
+// kept free from Android so that it can be tested and benchmarked on a plain JVM
+//
+// hexes are addressed by their index in HexGrid and the colors are kept in
+// an int array by index, so searching the board allocates nothing per step
+//
+// the radius and the number of colors are given to the constructor, the colors
+// are 0 to getColorCount() - 1 and the hexes in no path are GRAY
+public class GameBoard {
+
+    // indexes for colors
+    public static final int YELLOW = 0;
+    public static final int RED = 1;
+    public static final int BLUE = 2;
+    // after all the colors, so the same for every number of colors
+    public static final int GRAY = 8;
+
+    // sizes of the maps and numbers of colors to be played
+    public static final int MIN_RADIUS = 2;
+    public static final int MAX_RADIUS = 8;
+    public static final int MIN_COLORS = 3;
+    public static final int MAX_COLORS = GRAY;
+    public static final int DEFAULT_COLORS = 3;
+
+    // searches of findPathBy()
+    // breadth first, findPath()
+    public static final int SEARCH_BFS = 0;
+    // A* with the hex distance to the end point, findPath2()
+    public static final int SEARCH_ASTAR = 1;
+    // breadth first from both of the points, findPathBidirectional()
+    public static final int SEARCH_BIDIRECTIONAL = 2;
+
+    // array of hexagon points
+    private final HexGrid grid;
+    // number of the colors, i.e. of the paths
+    private final int colorCount;
+    // color of each hexagon point by index
+    private final int[] cellColors;
+    // paths of the colors in the order the hexes were selected
+    private final CellPath[] paths;
+    // answer points, 2 of start and end points for each color path
+    private final int[][] answerPoints;
+    // incremented on every change of the start and end points
+    private int puzzleVersion = 0;
+    // a solution of the start and end points, hexes of each color path,
+    // null if unknown
+    private int[][] solution;
+    // incremented on every change of the path of each color,
+    // so that the path is drawn again only when changed
+    private final int[] pathVersions;
+
+    // counters kept up to date on every change of the colors and the paths,
+    // so that the game end is known without walking the paths
+    // number of hexes in the paths of all the colors
+    private int filledCount = 0;
+    // number of gray hexes
+    private int grayCount;
+    // whether the path of each color runs from its start to its end point
+    private final boolean[] connected;
+    private int connectedCount = 0;
+
+    // random numbers of the board and the generator
+    private final SplitMix64 random = new SplitMix64();
+    // random puzzles solvable by construction
+    private final PuzzleGenerator generator;
+    // exact solver for the verification, created on the first use
+    // as it works on BitGrid and a map of radius 4 or less
+    private PathSolver solver;
+    private long solverNodes = 0;
+    // counters and durations of the calls, null if not measured
+    private Metrics metrics;
+
+    // buffers for findPath() reused between the calls
+    private final int[] frontier;
+    private final int[] cameFrom;
+    // findPath() call number which visited the hex last,
+    // saves clearing cameFrom before every search
+    private final int[] visited;
+    private int visitStamp = 0;
+    // and for the other searches, the steps from the start point and the
+    // hexes done of A*, the open set as a binary heap of the keys and the hexes,
+    // the other side of the bidirectional search
+    private final int[] steps;
+    private final int[] closed;
+    private final int[] heapKeys;
+    private final int[] heapHexes;
+    private final int[] backFrontier;
+    private final int[] cameTo;
+    private final int[] backVisited;
+    // hexes expanded by the last search
+    private int expanded = 0;
+
+    public GameBoard(int mapRadius) {
+        this(mapRadius, DEFAULT_COLORS);
+    }
+
+    public GameBoard(int mapRadius, int colorCount) {
+        if (mapRadius < MIN_RADIUS || mapRadius > MAX_RADIUS) {
+            throw new IllegalArgumentException("radius must be " + MIN_RADIUS + " to " + MAX_RADIUS);
+        }
+        // creates a hex map based on the current radius
+        grid = new HexGrid(mapRadius);
+
+        if (colorCount < MIN_COLORS || colorCount > MAX_COLORS
+                || colorCount > PuzzleGenerator.maxColorCount(grid)) {
+            throw new IllegalArgumentException(colorCount + " colors on radius " + mapRadius);
+        }
+        this.colorCount = colorCount;
+
+        cellColors = new int[grid.size()];
+        Arrays.fill(cellColors, GRAY);
+        grayCount = grid.size();
+
+        // saves the user selected hex points to draw the path
+        paths = new CellPath[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            paths[i] = new CellPath(grid.size());
+        }
+
+        // contains two of start and end points for all color paths
+        answerPoints = new int[colorCount][2];
+        pathVersions = new int[colorCount];
+        connected = new boolean[colorCount];
+
+        generator = new PuzzleGenerator(grid, random);
+
+        frontier = new int[grid.size()];
+        cameFrom = new int[grid.size()];
+        visited = new int[grid.size()];
+        steps = new int[grid.size()];
+        closed = new int[grid.size()];
+        // a hex is put again whenever a shorter way to it is found,
+        // at most once through each of its neighbors
+        heapKeys = new int[grid.size() * HexGrid.DIRECTIONS + 1];
+        heapHexes = new int[grid.size() * HexGrid.DIRECTIONS + 1];
+        backFrontier = new int[grid.size()];
+        cameTo = new int[grid.size()];
+        backVisited = new int[grid.size()];
+    }
+
+    public int getMapRadius() {
+        return grid.getRadius();
+    }
+
+    public HexGrid getGrid() {
+        return grid;
+    }
+
+    public int getColorCount() {
+        return colorCount;
+    }
+
+    // path of the color, do not modify but use addToPath() and clearPath()
+    public CellPath getPath(int c) {
+        return paths[c];
+    }
+
+    // start (0) or end (1) point of the color
+    public int getAnswerPoint(int c, int i) {
+        return answerPoints[c][i];
+    }
+
+    public int getPuzzleVersion() {
+        return puzzleVersion;
+    }
+
+    public int getPathVersion(int c) {
+        return pathVersions[c];
+    }
+
+    // appends the hex to the path of the color, false and the path version
+    // kept if the hex is in the path already
+    public boolean addToPath(int c, int cell) {
+        if (!paths[c].add(cell)) return false;
+        filledCount++;
+        pathChanged(c);
+        return true;
+    }
+
+    public int getColor(int cell) {
+        return cellColors[cell];
+    }
+
+    public void setColor(int cell, int c) {
+        if (cellColors[cell] == GRAY) grayCount--;
+        if (c == GRAY) grayCount++;
+        cellColors[cell] = c;
+    }
+
+    // resets every hex to gray
+    private void clearColors() {
+        Arrays.fill(cellColors, GRAY);
+        grayCount = grid.size();
+    }
+
+    // number of hexes in the paths
+    public int getFilledCount() {
+        return filledCount;
+    }
+
+    // number of gray hexes, i.e. neither in a path nor a start or end point
+    public int getGrayCount() {
+        return grayCount;
+    }
+
+    // number of colors whose path connects its start and end points
+    public int getConnectedCount() {
+        return connectedCount;
+    }
+
+    // to be called after every change of the path of the color,
+    // updates the version and whether it is connected
+    private void pathChanged(int c) {
+        pathVersions[c]++;
+        CellPath path = paths[c];
+        int i1 = path.first();
+        int i2 = path.last();
+        int[] ans = answerPoints[c];
+        boolean now = path.size() >= 2
+                && ((ans[0] == i1 && ans[1] == i2) || (ans[0] == i2 && ans[1] == i1));
+        if (now != connected[c]) {
+            connected[c] = now;
+            connectedCount += now ? 1 : -1;
+        }
+    }
+
+    // generates a new game
+    // 1. cover all hexagon points with random paths, one for each color
+    // 2. take the both ends of the paths as start and end points - answerPoints
+    // 3. keep the paths as the solution - paths
+    public void generateGame() {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        loadPuzzle(generator.generate(colorCount));
+        if (metrics != null) metrics.record(Metrics.GENERATE_NANOS, System.nanoTime() - startTime);
+    }
+
+    // generates the game of the seed, the same seed makes the same game
+    public void generateGame(long seed) {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        loadPuzzle(generator.generate(colorCount, seed));
+        if (metrics != null) metrics.record(Metrics.GENERATE_NANOS, System.nanoTime() - startTime);
+    }
+
+    // the former generateGame(), kept to compare the numbers
+    // 1. reset the all hexagon points - cellColors and paths
+    // 2. generate the paris of random points for all the colors - answerPoints
+    // 3. verify that each pair can be connected without crossing and
+    //    the paths cover all hexagon points  - paths
+    // the verification needs a map of radius 4 or less, see PathSolver
+    public void generateGameByRejection() {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        int attempts = 0;
+        do {
+            placeAnswerPoints();
+            attempts++;
+        } while (!IsCurrentAnswerPointsVerified()); // verified the generated answer points
+        if (metrics != null) {
+            metrics.record(Metrics.GENERATE_ATTEMPTS, attempts);
+            metrics.record(Metrics.GENERATE_NANOS, System.nanoTime() - startTime);
+        }
+    }
+
+    // sets the start and end points of the puzzle, and its solution to paths
+    public void loadPuzzle(Puzzle puzzle) {
+        if (puzzle.radius != grid.getRadius() || puzzle.getColorCount() != colorCount) {
+            throw new IllegalArgumentException("puzzle of radius " + puzzle.radius + " with "
+                    + puzzle.getColorCount() + " colors on a board of radius " + grid.getRadius()
+                    + " with " + colorCount + " colors");
+        }
+        puzzleVersion++;
+        solution = puzzle.paths;
+        clearColors();
+        for (int c = 0; c < colorCount; c++) {
+            answerPoints[c][0] = puzzle.endpoints[c][0];
+            answerPoints[c][1] = puzzle.endpoints[c][1];
+            setPath(c, puzzle.paths[c]);
+        }
+    }
+
+    // replaces the path of the color with the hexes
+    private void setPath(int c, int[] hexes) {
+        CellPath path = paths[c];
+        filledCount -= path.size();
+        path.clear();
+        for (int hex : hexes) {
+            setColor(hex, c);
+            if (path.add(hex)) filledCount++;
+        }
+        pathChanged(c);
+    }
+
+    // one attempt of generateGameByRejection() without the verification,
+    // places the random start and end points for all colors
+    public void placeAnswerPoints() {
+        puzzleVersion++;
+        solution = null;
+
+        // reset path
+        for (int i = 0; i < colorCount; i++) {
+            paths[i].clear();
+        }
+        filledCount = 0;
+
+        // reset all hexagon points
+        clearColors();
+
+        // generate start and end points for all colors
+        for (int c = 0; c < colorCount; c++) {
+            int h1;
+            int h2;
+
+            do {
+                do {
+                    do {
+                        h1 = getRandomNumber(0, grid.size());
+                    } while (cellColors[h1] != GRAY);
+                    do {
+                        h2 = getRandomNumber(0, grid.size());
+                    } while (cellColors[h2] != GRAY);
+                } while (h2 == h1);
+            } while (grid.isNeighbor(h1, h2)); // avoid the neighbors
+
+            setColor(h1, c);
+            setColor(h2, c);
+
+            // save the points for checking the answers
+            answerPoints[c][0] = h1;
+            answerPoints[c][1] = h2;
+        }
+        for (int c = 0; c < colorCount; c++) {
+            pathChanged(c);
+        }
+    }
+
+    public void resetGame() {
+        for (int c = 0; c < colorCount; c++) {
+            clearPath(c, 0);
+        }
+    }
+
+    // cuts the path of the color after the hex, i.e. the hex becomes the last
+    // one again. false if the hex is not in the path
+    public boolean cutPathAfter(int c, int cell) {
+        int i = paths[c].indexOf(cell);
+        if (i == CellPath.NONE) return false;
+        // not the last one
+        if (i + 1 < paths[c].size()) clearPath(c, i + 1);
+        return true;
+    }
+
+    // removes the path starting from the specified position
+    public void clearPath(int c, int start) {
+        CellPath path = paths[c];
+        // set GRAY i.e. mark deselected to hexes in the path
+        // starting from start to end
+        for (int i = Math.max(start, 0); i < path.size(); i++) {
+            setColor(path.get(i), GRAY);
+        }
+        filledCount -= path.size();
+        path.truncate(start);
+        filledCount += path.size();
+        // ensure the end points not to be erased
+        setColor(answerPoints[c][0], c);
+        setColor(answerPoints[c][1], c);
+        pathChanged(c);
+    }
+
+    // checks two of both start and end points are in the path
+    public boolean isPathConnected(int c) {
+        return connected[c];
+    }
+
+    // every color connected and every hex filled, O(1) on the counters
+    public boolean isGameEnd() {
+        return connectedCount == colorCount && filledCount == grid.size();
+    }
+
+    public int getRandomNumber(int min, int max) {
+        return random.nextInt(max - min) + min;
+    }
+
+    // returns true if the current start and end points can be connected
+    // without crossing each other and cover all hexagon points
+    //
+    // PathSolver searches all the combinations of the paths, so the answer
+    // is exact. the found paths are set to the paths of the colors. the
+    // solver keeps the states failed for the later attempts of the board,
+    // see TranspositionTable. it works on BitGrid, larger maps throw IllegalArgumentException
+    public boolean IsCurrentAnswerPointsVerified() {
+        if (solver == null) solver = new PathSolver(grid);
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        PathSolver.Result result = solver.solve(answerPoints);
+        if (metrics != null) {
+            metrics.record(Metrics.VERIFY_NANOS, System.nanoTime() - startTime);
+            if (result.solved) metrics.increment(Metrics.VERIFIED);
+            metrics.add(Metrics.TABLE_HITS, result.tableHits);
+            metrics.add(Metrics.TABLE_MISSES, result.tableMisses);
+        }
+        solverNodes = result.nodes;
+        if (!result.solved) return false;
+
+        solution = result.paths;
+        for (int c = 0; c < colorCount; c++) {
+            setPath(c, result.paths[c]);
+        }
+        return true;
+    }
+
+    // a solution of the current start and end points, not to be modified,
+    // null if unknown
+    public int[][] getSolution() {
+        return solution;
+    }
+
+    // records the generation, the verification and findPath() to the metrics,
+    // null to stop
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // number of search nodes of the last IsCurrentAnswerPointsVerified()
+    public long getSolverNodes() {
+        return solverNodes;
+    }
+
+    // logic for path finding is referred from
+    // https://www.redblobgames.com/pathfinding/a-star/introduction.html
+    // simple breath first search is implemented here
+    //
+    // the queue and the came-from table are int arrays indexed by the hex index
+    public boolean findPath(int currentColor, int start, int end) {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        int stamp = ++visitStamp;
+        expanded = 0;
+
+        int head = 0;
+        int tail = 0;
+        frontier[tail++] = start;
+        visited[start] = stamp;
+        cameFrom[start] = HexGrid.NONE;
+
+        boolean hasAnswer = false;
+
+        while (head < tail) {
+            int current = frontier[head++];
+            expanded++;
+
+            if (current == end) {
+                hasAnswer = true;
+                break;
+            }
+
+            // searching all neighbors
+            int[] neighbors = grid.neighbors(current);
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int next = neighbors[direction];
+                // not in the current hexagon map
+                if (next == HexGrid.NONE) continue;
+                // only gray (not selected) or own color
+                if (!(cellColors[next] == GRAY || cellColors[next] == currentColor)) continue;
+
+                if (visited[next] != stamp) {
+                    frontier[tail++] = next;
+                    visited[next] = stamp;
+                    cameFrom[next] = current;
+                }
+            }
+        }
+
+        if (hasAnswer) addFoundPath(currentColor, start, end);
+        if (metrics != null) metrics.record(Metrics.FIND_PATH_NANOS, System.nanoTime() - startTime);
+        return hasAnswer;
+    }
+
+    // the path found from the start to the end point by cameFrom, added from the end point
+    private void addFoundPath(int currentColor, int start, int end) {
+        CellPath path = paths[currentColor];
+
+        for (int current = end; current != start; current = cameFrom[current]) {
+            setColor(current, currentColor);
+            if (path.add(current)) filledCount++;
+        }
+        if (path.add(start)) filledCount++;
+        pathChanged(currentColor);
+    }
+
+    // only gray (not selected) or own color
+    private boolean isPassable(int cell, int currentColor) {
+        return cellColors[cell] == GRAY || cellColors[cell] == currentColor;
+    }
+
+    // one of the searches, all find a path whenever another does
+    public boolean findPathBy(int search, int currentColor, int start, int end) {
+        switch (search) {
+            case SEARCH_BFS:
+                return findPath(currentColor, start, end);
+            case SEARCH_ASTAR:
+                return findPath2(currentColor, start, end);
+            case SEARCH_BIDIRECTIONAL:
+                return findPathBidirectional(currentColor, start, end);
+            default:
+                throw new IllegalArgumentException("unknown search " + search);
+        }
+    }
+
+    // number of hexes expanded by the last search
+    public int getExpanded() {
+        return expanded;
+    }
+
+    // A* search, the hex distance to the end point never overestimates the
+    // steps left, so the path is as short as the one of findPath(). the open
+    // set is a binary heap in int arrays, a hex put again by a shorter way
+    // leaves its older entry behind, skipped when taken out
+    public boolean findPath2(int currentColor, int start, int end) {
+        int stamp = ++visitStamp;
+        expanded = 0;
+        Hex goal = grid.hex(end);
+
+        int heapSize = 0;
+        visited[start] = stamp;
+        steps[start] = 0;
+        cameFrom[start] = HexGrid.NONE;
+        heapSize = push(heapSize, key(grid.hex(start).distance(goal), 0), start);
+
+        boolean hasAnswer = false;
+
+        while (heapSize > 0) {
+            int current = heapHexes[0];
+            heapSize = pop(heapSize);
+            if (closed[current] == stamp) continue;
+            closed[current] = stamp;
+            expanded++;
+
+            if (current == end) {
+                hasAnswer = true;
+                break;
+            }
+
+            int nextSteps = steps[current] + 1;
+            int[] neighbors = grid.neighbors(current);
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int next = neighbors[direction];
+                if (next == HexGrid.NONE || !isPassable(next, currentColor)) continue;
+                if (visited[next] == stamp && steps[next] <= nextSteps) continue;
+
+                visited[next] = stamp;
+                steps[next] = nextSteps;
+                cameFrom[next] = current;
+                heapSize = push(heapSize, key(nextSteps + grid.hex(next).distance(goal), nextSteps), next);
+            }
+        }
+
+        if (!hasAnswer) {
+            return false;
+        }
+
+        addFoundPath(currentColor, start, end);
+        return true;
+    }
+
+    // ordered by the estimated length, and the longest way first of the same
+    // estimate, which is the nearest to the end point
+    private static int key(int estimate, int steps) {
+        return (estimate << 16) - steps;
+    }
+
+    private int push(int heapSize, int key, int hex) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapKeys[parent] <= key) break;
+            heapKeys[i] = heapKeys[parent];
+            heapHexes[i] = heapHexes[parent];
+            i = parent;
+        }
+        heapKeys[i] = key;
+        heapHexes[i] = hex;
+        return heapSize;
+    }
+
+    // removes the top of the heap
+    private int pop(int heapSize) {
+        heapSize--;
+        int key = heapKeys[heapSize];
+        int hex = heapHexes[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (key <= heapKeys[child]) break;
+            heapKeys[i] = heapKeys[child];
+            heapHexes[i] = heapHexes[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapHexes[i] = hex;
+        return heapSize;
+    }
+
+    // breadth first search from both of the points, a layer of the smaller
+    // frontier at a time, until the two searches meet. cameTo leads from a
+    // hex found from the end point back to the end point
+    public boolean findPathBidirectional(int currentColor, int start, int end) {
+        int stamp = ++visitStamp;
+        expanded = 0;
+        if (start == end) {
+            addFoundPath(currentColor, start, end);
+            return true;
+        }
+        // the end point is entered as any other hex by findPath()
+        if (!isPassable(end, currentColor)) return false;
+
+        int head = 0;
+        int tail = 0;
+        frontier[tail++] = start;
+        visited[start] = stamp;
+        cameFrom[start] = HexGrid.NONE;
+
+        int backHead = 0;
+        int backTail = 0;
+        backFrontier[backTail++] = end;
+        backVisited[end] = stamp;
+        cameTo[end] = HexGrid.NONE;
+
+        int meet = HexGrid.NONE;
+        while (meet == HexGrid.NONE && head < tail && backHead < backTail) {
+            if (tail - head <= backTail - backHead) {
+                // a layer from the start point
+                int layerEnd = tail;
+                while (meet == HexGrid.NONE && head < layerEnd) {
+                    int current = frontier[head++];
+                    expanded++;
+                    int[] neighbors = grid.neighbors(current);
+                    for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                        int next = neighbors[direction];
+                        if (next == HexGrid.NONE || visited[next] == stamp) continue;
+                        if (!isPassable(next, currentColor)) continue;
+                        visited[next] = stamp;
+                        cameFrom[next] = current;
+                        if (backVisited[next] == stamp) {
+                            meet = next;
+                            break;
+                        }
+                        frontier[tail++] = next;
+                    }
+                }
+            } else {
+                // a layer from the end point, it may step on the start point
+                int layerEnd = backTail;
+                while (meet == HexGrid.NONE && backHead < layerEnd) {
+                    int current = backFrontier[backHead++];
+                    expanded++;
+                    int[] neighbors = grid.neighbors(current);
+                    for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                        int next = neighbors[direction];
+                        if (next == HexGrid.NONE || backVisited[next] == stamp) continue;
+                        if (next != start && !isPassable(next, currentColor)) continue;
+                        backVisited[next] = stamp;
+                        cameTo[next] = current;
+                        if (visited[next] == stamp) {
+                            meet = next;
+                            break;
+                        }
+                        backFrontier[backTail++] = next;
+                    }
+                }
+            }
+        }
+
+        if (meet == HexGrid.NONE) {
+            return false;
+        }
+
+        // joins the halves into cameFrom, from the meeting hex to the end point
+        for (int current = meet; current != end; ) {
+            int next = cameTo[current];
+            cameFrom[next] = current;
+            current = next;
+        }
+        addFoundPath(currentColor, start, end);
+        return true;
+    }
+}
@@ -2,19 +2,11 @@
 
 package org.nabe.koshigaya;
 
-import java.util.ArrayList;
-
+// canonical instances of the hexes of a map are kept by HexGrid, so the hexes
+// of a map can be compared by ==. the queries below take ints only and
+// allocate nothing, only add() and the like make new hexes
 public class Hex {
 
-    // added
-    public int c;
-
-    // added
-    public Hex(int q, int r, int s, int c) {
-        this(q, r, s);
-        this.c = c;
-    }
-
     public Hex(int q, int r, int s) {
         this.q = q;
         this.r = r;
@@ -53,17 +45,23 @@ public class Hex {
     }
 
 
-    static public ArrayList<Hex> directions = new ArrayList<Hex>() {{
-        add(new Hex(1, 0, -1));
-        add(new Hex(1, -1, 0));
-        add(new Hex(0, -1, 1));
-        add(new Hex(-1, 0, 1));
-        add(new Hex(-1, 1, 0));
-        add(new Hex(0, 1, -1));
-    }};
+    // mirrored across the axis of q, r and s swapped
+    public Hex reflect() {
+        return new Hex(q, s, r);
+    }
+
+
+    static private final Hex[] directions = {
+            new Hex(1, 0, -1),
+            new Hex(1, -1, 0),
+            new Hex(0, -1, 1),
+            new Hex(-1, 0, 1),
+            new Hex(-1, 1, 0),
+            new Hex(0, 1, -1),
+    };
 
     static public Hex direction(int direction) {
-        return Hex.directions.get(direction);
+        return directions[direction];
     }
 
 
@@ -72,48 +70,43 @@ public class Hex {
     }
 
 
+    // at the distance 1
     public boolean isNeighbor(Hex b) {
-        return b.equals(neighbor(0)) ||
-                b.equals(neighbor(1)) ||
-                b.equals(neighbor(2)) ||
-                b.equals(neighbor(3)) ||
-                b.equals(neighbor(4)) ||
-                b.equals(neighbor(5));
+        return Math.abs(q - b.q) + Math.abs(r - b.r) + Math.abs(s - b.s) == 2;
     }
 
 
-    static public ArrayList<Hex> diagonals = new ArrayList<Hex>() {{
-        add(new Hex(2, -1, -1));
-        add(new Hex(1, -2, 1));
-        add(new Hex(-1, -1, 2));
-        add(new Hex(-2, 1, 1));
-        add(new Hex(-1, 2, -1));
-        add(new Hex(1, 1, -2));
-    }};
+    static private final Hex[] diagonals = {
+            new Hex(2, -1, -1),
+            new Hex(1, -2, 1),
+            new Hex(-1, -1, 2),
+            new Hex(-2, 1, 1),
+            new Hex(-1, 2, -1),
+            new Hex(1, 1, -2),
+    };
 
 
     public Hex diagonalNeighbor(int direction) {
-        return add(Hex.diagonals.get(direction));
+        return add(diagonals[direction]);
     }
 
 
+    // at the distance 2 and on none of the axes through this hex
     public boolean isDiagonalNeighbor(Hex b) {
-        return b.equals(diagonalNeighbor(0)) ||
-                b.equals(diagonalNeighbor(1)) ||
-                b.equals(diagonalNeighbor(2)) ||
-                b.equals(diagonalNeighbor(3)) ||
-                b.equals(diagonalNeighbor(4)) ||
-                b.equals(diagonalNeighbor(5));
+        int dq = q - b.q;
+        int dr = r - b.r;
+        int ds = s - b.s;
+        return dq != 0 && dr != 0 && ds != 0 && Math.abs(dq) + Math.abs(dr) + Math.abs(ds) == 4;
     }
 
 
     public int length() {
-        return (int) ((Math.abs(q) + Math.abs(r) + Math.abs(s)) / 2);
+        return (Math.abs(q) + Math.abs(r) + Math.abs(s)) / 2;
     }
 
 
     public int distance(Hex b) {
-        return subtract(b).length();
+        return (Math.abs(q - b.q) + Math.abs(r - b.r) + Math.abs(s - b.s)) / 2;
     }
 
 
@@ -132,8 +125,10 @@ public class Hex {
         return this.q == other.q && this.r == other.r && this.s == other.s;
     }
 
+    // q and r packed in 16 bits each, s follows from them, so no two hexes
+    // within 32767 of the origin have the same hash
     @Override
     public int hashCode() {
-        return Integer.valueOf(q).hashCode() + Integer.valueOf(r).hashCode() + Integer.valueOf(s).hashCode();
+        return (q << 16) ^ (r & 0xffff);
     }
 }
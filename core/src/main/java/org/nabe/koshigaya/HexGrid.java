@@ -0,0 +1,145 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+
+// hexagon shaped map of the given radius where every hex has an int index
+//
+// the indexes run row by row (top to bottom, left to right in the odd-r offset
+// layout) and the six neighbors of every hex are precomputed so that searching
+// the map needs neither allocation nor hash lookup
+//
+// the grid also owns one canonical Hex for every hex of the map, found by its
+// coordinate in the axial table, so the hexes it returns are equal only if ==
+public class HexGrid {
+
+    // index of a hex outside of the map
+    public static final int NONE = -1;
+
+    // number of directions, see Hex.direction()
+    public static final int DIRECTIONS = 6;
+
+    // size of hexagon i.e. distance from center
+    private final int radius;
+    // width of the square tables covering both the axial and offset coordinates
+    private final int span;
+    // hexes and offset coordinates by index
+    private final Hex[] hexes;
+    private final OffsetCoord[] coords;
+    // neighbor indexes by index and direction, NONE if outside of the map
+    private final int[][] neighbors;
+    // indexes by axial coordinate, (r + radius) * span + (q + radius)
+    private final int[] axialIndex;
+    // indexes by offset coordinate, (row + radius) * span + (col + radius)
+    private final int[] offsetIndex;
+
+    public HexGrid(int radius) {
+        this.radius = radius;
+        this.span = radius * 2 + 1;
+
+        int size = 3 * radius * (radius + 1) + 1;
+        hexes = new Hex[size];
+        coords = new OffsetCoord[size];
+        axialIndex = new int[span * span];
+        offsetIndex = new int[span * span];
+        Arrays.fill(axialIndex, NONE);
+        Arrays.fill(offsetIndex, NONE);
+
+        int i = 0;
+        for (int r = -radius; r <= radius; r++) {
+            int q1 = Math.max(-radius, -r - radius);
+            int q2 = Math.min(radius, -r + radius);
+            for (int q = q1; q <= q2; q++) {
+                Hex h = new Hex(q, r, -q - r);
+                OffsetCoord coord = OffsetCoord.roffsetFromCube(OffsetCoord.ODD, h);
+                hexes[i] = h;
+                coords[i] = coord;
+                axialIndex[(r + radius) * span + (q + radius)] = i;
+                offsetIndex[(coord.row + radius) * span + (coord.col + radius)] = i;
+                i++;
+            }
+        }
+
+        neighbors = new int[size][DIRECTIONS];
+        for (i = 0; i < size; i++) {
+            Hex h = hexes[i];
+            for (int direction = 0; direction < DIRECTIONS; direction++) {
+                Hex d = Hex.direction(direction);
+                neighbors[i][direction] = indexOf(h.q + d.q, h.r + d.r);
+            }
+        }
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    // number of hexes in the map
+    public int size() {
+        return hexes.length;
+    }
+
+    public Hex hex(int index) {
+        return hexes[index];
+    }
+
+    // the canonical hex of the axial coordinate, null if outside of the map
+    public Hex hexOf(int q, int r) {
+        int i = indexOf(q, r);
+        return i == NONE ? null : hexes[i];
+    }
+
+    // the canonical instance equal to the hex, null if outside of the map
+    public Hex canonical(Hex h) {
+        return hexOf(h.q, h.r);
+    }
+
+    // the canonical neighbor in the direction, null if outside of the map
+    public Hex neighbor(Hex h, int direction) {
+        int i = indexOf(h);
+        if (i == NONE) return null;
+        int n = neighbors[i][direction];
+        return n == NONE ? null : hexes[n];
+    }
+
+    public OffsetCoord coord(int index) {
+        return coords[index];
+    }
+
+    // the neighbor in the direction, NONE if outside of the map
+    public int neighbor(int index, int direction) {
+        return neighbors[index][direction];
+    }
+
+    // six neighbors of the hex, do not modify
+    public int[] neighbors(int index) {
+        return neighbors[index];
+    }
+
+    public boolean isNeighbor(int a, int b) {
+        int[] n = neighbors[a];
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            if (n[direction] == b) return true;
+        }
+        return false;
+    }
+
+    // index from axial coordinate, NONE if outside of the map
+    public int indexOf(int q, int r) {
+        if (q < -radius || q > radius || r < -radius || r > radius) return NONE;
+        return axialIndex[(r + radius) * span + (q + radius)];
+    }
+
+    public int indexOf(Hex h) {
+        return indexOf(h.q, h.r);
+    }
+
+    // index from odd-r offset coordinate, NONE if outside of the map
+    public int indexAt(int col, int row) {
+        if (col < -radius || col > radius || row < -radius || row > radius) return NONE;
+        return offsetIndex[(row + radius) * span + (col + radius)];
+    }
+
+    public int indexOf(OffsetCoord coord) {
+        return indexAt(coord.col, coord.row);
+    }
+}
@@ -0,0 +1,176 @@
+package org.nabe.koshigaya;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// hints for the player, the next hex of a path or "this is a dead end"
+//
+// PathSolver searches a solution keeping the paths drawn so far, on one
+// background thread, guided by the solution of the puzzle if it is known.
+// a search from scratch may take seconds on radius 4, while the guided one
+// takes a few hundred nodes as long as the paths agree with the solution.
+// request() takes a copy of the board on the UI thread and cancels the hint
+// in progress, so a new touch (cancel()) or a new request stops the search at
+// once and an old hint is never reported. a search longer than TIMEOUT_NANOS
+// gives up, so the player never waits for a hint
+//
+// PathSolver works on BitGrid, so the map must be of radius 4 or less
+public class HintEngine {
+
+    // time a hint may take, the answer should feel instant
+    public static final long TIMEOUT_NANOS = 50000000L;
+
+    public static class Hint {
+        // the next hex of a path is found
+        public static final int NEXT = 0;
+        // the paths drawn so far cannot be completed
+        public static final int DEAD_END = 1;
+        // every path is connected and every hex is filled
+        public static final int SOLVED = 2;
+        // no answer within TIMEOUT_NANOS
+        public static final int TIMEOUT = 3;
+
+        public final int kind;
+        // color of the path, the hex to continue from and the hex to add,
+        // HexGrid.NONE unless NEXT
+        public final int color;
+        public final int from;
+        public final int cell;
+        // time spent for the hint
+        public final long nanos;
+
+        Hint(int kind, int color, int from, int cell, long nanos) {
+            this.kind = kind;
+            this.color = color;
+            this.from = from;
+            this.cell = cell;
+            this.nanos = nanos;
+        }
+    }
+
+    // called on the background thread with the hint of the last request
+    public interface Listener {
+        void onHint(HintEngine engine, Hint hint);
+    }
+
+    private final PathSolver solver;
+    private final ExecutorService worker;
+    private volatile Listener listener;
+    // cancel flag of the hint in progress
+    private AtomicBoolean current;
+
+    public static boolean isSupported(HexGrid grid) {
+        return BitGrid.isSupported(grid.getRadius());
+    }
+
+    public HintEngine(HexGrid grid) {
+        solver = new PathSolver(grid);
+        worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "HintEngine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // a hint for the board as it is now, preferably for the color,
+    // reported to the listener unless cancelled
+    public synchronized void request(GameBoard board, final int preferredColor) {
+        cancel();
+        final int[][] endpoints = new int[board.getColorCount()][2];
+        final int[][] prefixes = new int[board.getColorCount()][];
+        for (int c = 0; c < endpoints.length; c++) {
+            endpoints[c][0] = board.getAnswerPoint(c, 0);
+            endpoints[c][1] = board.getAnswerPoint(c, 1);
+            CellPath path = board.getPath(c);
+            prefixes[c] = new int[path.size()];
+            for (int i = 0; i < path.size(); i++) {
+                prefixes[c][i] = path.get(i);
+            }
+        }
+        final int[][] guide = board.getSolution();
+        final AtomicBoolean cancel = new AtomicBoolean();
+        current = cancel;
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancel.get()) return;
+                Hint hint = hint(endpoints, prefixes, guide, preferredColor, cancel);
+                Listener l = listener;
+                if (hint != null && !cancel.get() && l != null) l.onHint(HintEngine.this, hint);
+            }
+        });
+    }
+
+    // stops the hint in progress, nothing is reported for it
+    public synchronized void cancel() {
+        if (current != null) current.set(true);
+        current = null;
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    // the hint on the calling thread, null if cancelled. guide is a solution of
+    // the end points or null, see PathSolver.solve().
+    // not to be called while a request may be in progress, they share the solver
+    public Hint hint(int[][] endpoints, int[][] prefixes, int[][] guide,
+                     int preferredColor, AtomicBoolean cancel) {
+        long startTime = System.nanoTime();
+        PathSolver.Result result = solver.solve(endpoints, prefixes, guide, cancel, TIMEOUT_NANOS);
+        long nanos = System.nanoTime() - startTime;
+        if (result.cancelled) {
+            if (cancel != null && cancel.get()) return null;
+            return new Hint(Hint.TIMEOUT, HexGrid.NONE, HexGrid.NONE, HexGrid.NONE, nanos);
+        }
+        if (!result.solved) {
+            return new Hint(Hint.DEAD_END, HexGrid.NONE, HexGrid.NONE, HexGrid.NONE, nanos);
+        }
+
+        // the preferred color, or a color being drawn, or any color not connected
+        int color = -1;
+        if (preferredColor >= 0 && preferredColor < endpoints.length
+                && !isConnected(endpoints[preferredColor], prefixes[preferredColor])) {
+            color = preferredColor;
+        }
+        for (int c = 0; c < endpoints.length && color < 0; c++) {
+            boolean drawn = prefixes[c] != null && prefixes[c].length >= 2;
+            if (drawn && !isConnected(endpoints[c], prefixes[c])) color = c;
+        }
+        for (int c = 0; c < endpoints.length && color < 0; c++) {
+            if (!isConnected(endpoints[c], prefixes[c])) color = c;
+        }
+        if (color < 0) {
+            return new Hint(Hint.SOLVED, HexGrid.NONE, HexGrid.NONE, HexGrid.NONE, nanos);
+        }
+
+        // the hex after the head in the solution, which runs from the start point
+        int[] prefix = prefixes[color];
+        int[] solution = result.paths[color];
+        if (prefix == null || prefix.length == 0) {
+            return new Hint(Hint.NEXT, color, solution[0], solution[1], nanos);
+        }
+        int head = prefix[prefix.length - 1];
+        if (prefix[0] == endpoints[color][0]) {
+            return new Hint(Hint.NEXT, color, head, solution[prefix.length], nanos);
+        }
+        return new Hint(Hint.NEXT, color, head, solution[solution.length - 1 - prefix.length], nanos);
+    }
+
+    private static boolean isConnected(int[] endpoints, int[] prefix) {
+        if (prefix == null || prefix.length < 2) return false;
+        int first = prefix[0];
+        int last = prefix[prefix.length - 1];
+        return (first == endpoints[0] && last == endpoints[1]) || (first == endpoints[1] && last == endpoints[0]);
+    }
+}
@@ -0,0 +1,109 @@
+package org.nabe.koshigaya;
+
+// counts of the values recorded, e.g. nanoseconds, in fixed buckets of the
+// powers of 2, bucket 0 for 0 and bucket i for 2^(i-1) to 2^i - 1
+//
+// record() is a few arithmetic operations on the arrays made by the
+// constructor and allocates nothing, so measuring does not change the
+// numbers much. the percentiles are the upper bounds of the buckets, i.e.
+// at most twice the real ones. a histogram itself is not thread safe,
+// Metrics guards its histograms by its lock for the threads recording to
+// them and hands out copies to read
+public class Histogram {
+
+    // bucket 0 and one bucket for each bit, every value not negative
+    public static final int BUCKETS = 64;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public Histogram() {
+    }
+
+    // a copy of the counts of the histogram
+    public Histogram(Histogram histogram) {
+        System.arraycopy(histogram.buckets, 0, buckets, 0, BUCKETS);
+        count = histogram.count;
+        sum = histogram.sum;
+        max = histogram.max;
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public static int bucketOf(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    // largest value of the bucket
+    public static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public long getBucket(int bucket) {
+        return buckets[bucket];
+    }
+
+    // the value of the percent of the values at or below it, 0 if none
+    public long getPercentile(int percent) {
+        if (count == 0) return 0;
+        // rank of the value, 1 to count
+        long rank = Math.max(1, (count * percent + 99) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    // {"count":...,"sum":...,"max":...,"p50":...,"p90":...,"p99":...,"buckets":[...]}
+    // with the buckets up to the last one not empty
+    public void appendJson(StringBuilder json) {
+        json.append("{\"count\":").append(count)
+                .append(",\"sum\":").append(sum)
+                .append(",\"max\":").append(max)
+                .append(",\"p50\":").append(getPercentile(50))
+                .append(",\"p90\":").append(getPercentile(90))
+                .append(",\"p99\":").append(getPercentile(99))
+                .append(",\"buckets\":[");
+        int last = count == 0 ? 0 : bucketOf(max) + 1;
+        for (int i = 0; i < last; i++) {
+            if (i > 0) json.append(',');
+            json.append(buckets[i]);
+        }
+        json.append("]}");
+    }
+}
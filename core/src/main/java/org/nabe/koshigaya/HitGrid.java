@@ -0,0 +1,90 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+
+// finds the hex under a point of the canvas exactly, i.e. the hex of the
+// nearest center as long as it is within the hit radius, without allocating
+//
+// the canvas is divided into square cells of a quarter of the point size and
+// every cell keeps the few hexes which can be the nearest to any point in it,
+// so a lookup is the cell of the point and the distances to its candidates.
+// for a cell of the center p and the half diagonal h, the nearest center of a
+// point in the cell is within dist(p, nearest of p) + 2h of p, so the hexes
+// closer than that are enough
+public class HitGrid {
+
+    private final float[] centerX;
+    private final float[] centerY;
+    private final float hitRadius2;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    // candidates of the cell i are candidates[cellStart[i]] to candidates[cellStart[i + 1] - 1]
+    private final int[] cellStart;
+    private final int[] candidates;
+
+    // centers of the hexes by index on a square canvas
+    public HitGrid(float[] centerX, float[] centerY, int canvasSize, int pointSize, float hitRadius) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.hitRadius2 = hitRadius * hitRadius;
+        this.cellSize = Math.max(1, pointSize / 4);
+        columns = (int) Math.ceil(canvasSize / cellSize);
+        rows = columns;
+
+        int size = centerX.length;
+        float h = cellSize * (float) Math.sqrt(2) / 2;
+        cellStart = new int[columns * rows + 1];
+        int[] found = new int[columns * rows * 4];
+        int count = 0;
+        float[] distances = new float[size];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                float px = (col + 0.5f) * cellSize;
+                float py = (row + 0.5f) * cellSize;
+                float nearest = Float.MAX_VALUE;
+                for (int i = 0; i < size; i++) {
+                    distances[i] = (float) Math.hypot(centerX[i] - px, centerY[i] - py);
+                    nearest = Math.min(nearest, distances[i]);
+                }
+                cellStart[row * columns + col] = count;
+                for (int i = 0; i < size; i++) {
+                    // the rest cannot be the nearest, or are too far to be hit
+                    if (distances[i] > nearest + 2 * h || distances[i] > hitRadius + h) continue;
+                    if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                    found[count++] = i;
+                }
+            }
+        }
+        cellStart[columns * rows] = count;
+        candidates = Arrays.copyOf(found, count);
+    }
+
+    // side of the cells, points this much apart are in the same or next cells
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    // index of the hex at the point, HexGrid.NONE if none
+    public int hexAt(float x, float y) {
+        if (!(x >= 0 && y >= 0)) return HexGrid.NONE;
+        int col = (int) (x / cellSize);
+        int row = (int) (y / cellSize);
+        if (col >= columns || row >= rows) return HexGrid.NONE;
+
+        int cell = row * columns + col;
+        int hex = HexGrid.NONE;
+        float best = hitRadius2;
+        for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+            int i = candidates[j];
+            float dx = centerX[i] - x;
+            float dy = centerY[i] - y;
+            float d2 = dx * dx + dy * dy;
+            if (d2 <= best) {
+                best = d2;
+                hex = i;
+            }
+        }
+        return hex;
+    }
+}
@@ -0,0 +1,50 @@
+package org.nabe.koshigaya;
+
+import java.util.Random;
+
+// the waiting effect, every hex flashing in a random color while a puzzle is
+// generated
+//
+// the colors of the hexes are picked once for a number of palettes, and the
+// frame time only chooses the palette, so that a frame picks no random number
+// and the view is drawn again only when the palette changes
+public class LoadingAnimation {
+
+    // time each palette is shown
+    public static final long PALETTE_NANOS = 250000000L;
+    // palettes made, shown one after another
+    private static final int PALETTES = 16;
+
+    // color index of every hex for each palette
+    private final int[][] palettes;
+    private long startNanos;
+    private int current = -1;
+
+    public LoadingAnimation(int hexCount, int colorCount, Random random) {
+        palettes = new int[PALETTES][hexCount];
+        for (int[] palette : palettes) {
+            for (int i = 0; i < hexCount; i++) {
+                palette[i] = random.nextInt(colorCount);
+            }
+        }
+    }
+
+    public void start(long frameTimeNanos) {
+        startNanos = frameTimeNanos;
+        current = 0;
+    }
+
+    // chooses the palette of the frame time, true if it changed and the frame is to be drawn
+    public boolean update(long frameTimeNanos) {
+        long elapsed = Math.max(0, frameTimeNanos - startNanos);
+        int palette = (int) ((elapsed / PALETTE_NANOS) % PALETTES);
+        if (palette == current) return false;
+        current = palette;
+        return true;
+    }
+
+    // color index of every hex for the current frame
+    public int[] getPalette() {
+        return palettes[Math.max(0, current)];
+    }
+}
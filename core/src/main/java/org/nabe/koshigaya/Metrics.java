@@ -0,0 +1,126 @@
+package org.nabe.koshigaya;
+
+// where the time goes, a fixed set of counters and histograms
+//
+// the measures are the constants below, indexes of the arrays made by the
+// constructor, so recording is an array access and Histogram.record() with
+// nothing allocated. whoever records keeps a reference to the metrics,
+// null when not measured, so the cost without the metrics is a null check.
+// thread safe, the UI thread and the PuzzleQueue thread record, so every
+// method holds the lock of the metrics, mostly uncontended, and the
+// histograms are read as copies
+public class Metrics {
+
+    // histograms
+    // start and end points tried per puzzle, GameBoard.generateGameByRejection()
+    public static final int GENERATE_ATTEMPTS = 0;
+    // time to make a puzzle, GameBoard.generateGame() and generateGameByRejection()
+    // and the refills of PuzzleQueue
+    public static final int GENERATE_NANOS = 1;
+    // GameBoard.IsCurrentAnswerPointsVerified()
+    public static final int VERIFY_NANOS = 2;
+    // GameBoard.findPath()
+    public static final int FIND_PATH_NANOS = 3;
+    // HexagonGame.onDraw()
+    public static final int FRAME_NANOS = 4;
+    // HexagonGame.onTouchEvent() from the event to invalidate()
+    public static final int TOUCH_NANOS = 5;
+    public static final int HISTOGRAMS = 6;
+
+    // counters
+    // puzzles verified as solvable by IsCurrentAnswerPointsVerified()
+    public static final int VERIFIED = 0;
+    // hexes added to the paths by the touches
+    public static final int MOVES = 1;
+    // moves making the board a dead end, see DeadEndDetector
+    public static final int DEAD_ENDS = 2;
+    // lookups of the states failed by the verifications found and not
+    // found, see TranspositionTable
+    public static final int TABLE_HITS = 3;
+    public static final int TABLE_MISSES = 4;
+    public static final int COUNTERS = 5;
+
+    private static final String[] HISTOGRAM_NAMES = {"generate_attempts", "generate_ns",
+            "verify_ns", "find_path_ns", "frame_ns", "touch_ns"};
+    private static final String[] COUNTER_NAMES = {"verified", "moves", "dead_ends",
+            "table_hits", "table_misses"};
+
+    private final Histogram[] histograms = new Histogram[HISTOGRAMS];
+    private final long[] counters = new long[COUNTERS];
+
+    public Metrics() {
+        for (int i = 0; i < HISTOGRAMS; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public synchronized void record(int histogram, long value) {
+        histograms[histogram].record(value);
+    }
+
+    public synchronized void increment(int counter) {
+        counters[counter]++;
+    }
+
+    public synchronized void add(int counter, long count) {
+        counters[counter] += count;
+    }
+
+    // a copy of the histogram as it is now
+    public synchronized Histogram getHistogram(int histogram) {
+        return new Histogram(histograms[histogram]);
+    }
+
+    // number of values recorded to the histogram
+    public synchronized long getCount(int histogram) {
+        return histograms[histogram].getCount();
+    }
+
+    public synchronized long getCounter(int counter) {
+        return counters[counter];
+    }
+
+    public static String getHistogramName(int histogram) {
+        return HISTOGRAM_NAMES[histogram];
+    }
+
+    public static String getCounterName(int counter) {
+        return COUNTER_NAMES[counter];
+    }
+
+    public synchronized void clear() {
+        for (Histogram histogram : histograms) {
+            histogram.clear();
+        }
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = 0;
+        }
+    }
+
+    // a line of the histogram for the overlay,
+    // e.g. "frame_ns n=120 p50=65535 p99=262143 max=180000"
+    public synchronized String summary(int histogram) {
+        Histogram h = histograms[histogram];
+        return HISTOGRAM_NAMES[histogram] + " n=" + h.getCount() + " p50=" + h.getPercentile(50)
+                + " p99=" + h.getPercentile(99) + " max=" + h.getMax();
+    }
+
+    // {"histograms":{"generate_attempts":{...},...},"counters":{"verified":...,...}},
+    // see Histogram.appendJson() for a histogram
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"histograms\":{");
+        for (int i = 0; i < HISTOGRAMS; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(HISTOGRAM_NAMES[i]).append("\":");
+            histograms[i].appendJson(json);
+        }
+        json.append("},\"counters\":{");
+        for (int i = 0; i < COUNTERS; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(COUNTER_NAMES[i]).append("\":").append(counters[i]);
+        }
+        json.append("}}");
+        return json.toString();
+    }
+}
@@ -2,8 +2,6 @@
 
 package org.nabe.koshigaya;
 
-import androidx.annotation.Nullable;
-
 public class OffsetCoord {
 
     public OffsetCoord(int col, int row) {
@@ -18,7 +16,7 @@ public class OffsetCoord {
 
     static public OffsetCoord qoffsetFromCube(int offset, Hex h) {
         int col = h.q;
-        int row = h.r + (int) ((h.q + offset * (h.q & 1)) / 2);
+        int row = h.r + (h.q + offset * (h.q & 1)) / 2;
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
         }
@@ -28,7 +26,7 @@ public class OffsetCoord {
 
     static public Hex qoffsetToCube(int offset, OffsetCoord h) {
         int q = h.col;
-        int r = h.row - (int) ((h.col + offset * (h.col & 1)) / 2);
+        int r = h.row - (h.col + offset * (h.col & 1)) / 2;
         int s = -q - r;
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
@@ -38,7 +36,7 @@ public class OffsetCoord {
 
 
     static public OffsetCoord roffsetFromCube(int offset, Hex h) {
-        int col = h.q + (int) ((h.r + offset * (h.r & 1)) / 2);
+        int col = h.q + (h.r + offset * (h.r & 1)) / 2;
         int row = h.r;
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
             throw new IllegalArgumentException("offset must be EVEN (+1) or ODD (-1)");
@@ -48,7 +46,7 @@ public class OffsetCoord {
 
 
     static public Hex roffsetToCube(int offset, OffsetCoord h) {
-        int q = h.col - (int) ((h.row + offset * (h.row & 1)) / 2);
+        int q = h.col - (h.row + offset * (h.row & 1)) / 2;
         int r = h.row;
         int s = -q - r;
         if (offset != OffsetCoord.EVEN && offset != OffsetCoord.ODD) {
@@ -58,7 +56,7 @@ public class OffsetCoord {
     }
 
     @Override
-    public boolean equals(@Nullable Object obj) {
+    public boolean equals(Object obj) {
         if (!(obj instanceof OffsetCoord)) {
             return false;
         }
@@ -68,10 +66,9 @@ public class OffsetCoord {
         return this.col == other.col && this.row == other.row;
     }
 
+    // col and row packed in 16 bits each, see Hex.hashCode()
     @Override
     public int hashCode() {
-        Integer ri = new Integer(row);
-        Integer rc = new Integer(col);
-        return ri.hashCode() + rc.hashCode();
+        return (col << 16) ^ (row & 0xffff);
     }
 }
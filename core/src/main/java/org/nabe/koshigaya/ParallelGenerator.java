@@ -0,0 +1,200 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// speculative puzzle generation on all the cores
+//
+// the retry loops (random end points until the solver finds a solution, or
+// generated puzzles until one is unique) take a random number of attempts,
+// so the same loop runs on every thread of a fixed pool and the first puzzle
+// found wins. the others are cancelled through a shared flag, checked between
+// the attempts and inside the solver and the solution counter, so the time to
+// the first puzzle is the minimum of the threads instead of one random sample
+//
+// every thread has its own generator, solver and random numbers split from
+// the given ones, nothing but the grid is shared. one generate call runs at a
+// time, and it returns only after every thread has stopped, also when it is
+// interrupted or a thread fails, so the next call never shares a worker
+public class ParallelGenerator {
+
+    private final HexGrid grid;
+    private final int threadCount;
+    private final ExecutorService pool;
+    private final Worker[] workers;
+
+    // stops all the workers once a puzzle is found
+    private final AtomicBoolean found = new AtomicBoolean();
+    private final AtomicReference<Puzzle> winner = new AtomicReference<>();
+    // first exception of the workers, thrown by the generate call
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // attempts of the last generate call, all the threads together
+    private long attempts = 0;
+
+    public ParallelGenerator(HexGrid grid, int threadCount, SplitMix64 random) {
+        this.grid = grid;
+        this.threadCount = threadCount;
+        pool = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ParallelGenerator-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        workers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Worker(random.split());
+        }
+    }
+
+    public ParallelGenerator(HexGrid grid) {
+        this(grid, Runtime.getRuntime().availableProcessors(), new SplitMix64());
+    }
+
+    public HexGrid getGrid() {
+        return grid;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    // attempts made by all the threads for the last puzzle
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // random start and end points until the solver finds a solution,
+    // see GameBoard.generateGameByRejection(). a failure of a worker, e.g. on
+    // a map too large for the solver, is thrown as IllegalStateException
+    public synchronized Puzzle generateByRejection(final int colorCount) throws InterruptedException {
+        return race(new Attempt() {
+            @Override
+            public Puzzle run(Worker worker) {
+                return worker.tryRandomPoints(colorCount);
+            }
+        });
+    }
+
+    // generated puzzles until one has exactly one solution,
+    // see PuzzleGenerator.generateUnique(). failures as generateByRejection()
+    public synchronized Puzzle generateUnique(final int colorCount) throws InterruptedException {
+        return race(new Attempt() {
+            @Override
+            public Puzzle run(Worker worker) {
+                return worker.tryUnique(colorCount);
+            }
+        });
+    }
+
+    // one attempt on the state of a worker, null if it failed
+    private interface Attempt {
+        Puzzle run(Worker worker);
+    }
+
+    private Puzzle race(final Attempt attempt) throws InterruptedException {
+        found.set(false);
+        winner.set(null);
+        failure.set(null);
+        final CountDownLatch stopped = new CountDownLatch(threadCount);
+        for (final Worker worker : workers) {
+            worker.attempts = 0;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (!found.get()) {
+                            worker.attempts++;
+                            Puzzle puzzle = attempt.run(worker);
+                            if (puzzle != null && winner.compareAndSet(null, puzzle)) {
+                                found.set(true);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        // stops the others too
+                        failure.compareAndSet(null, e);
+                        found.set(true);
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+            });
+        }
+        // the workers must be stopped before their state is used again,
+        // so an interrupt stops them and still waits for them
+        boolean interrupted = false;
+        while (true) {
+            try {
+                stopped.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                found.set(true);
+            }
+        }
+        attempts = 0;
+        for (Worker worker : workers) {
+            attempts += worker.attempts;
+        }
+        if (interrupted) throw new InterruptedException("generation interrupted");
+        if (failure.get() != null) throw new IllegalStateException("generation failed", failure.get());
+        return winner.get();
+    }
+
+    // the state of a thread
+    private class Worker {
+        private final SplitMix64 random;
+        private final PuzzleGenerator generator;
+        // created on the first use, it needs a map of radius 4 or less
+        private PathSolver solver;
+        private final int[] cellColors;
+        private long attempts;
+
+        Worker(SplitMix64 random) {
+            this.random = random;
+            generator = new PuzzleGenerator(grid, random);
+            cellColors = new int[grid.size()];
+        }
+
+        Puzzle tryRandomPoints(int colorCount) {
+            // distinct random points, the pair of a color not next to each other
+            int[][] endpoints = new int[colorCount][2];
+            Arrays.fill(cellColors, -1);
+            for (int c = 0; c < colorCount; c++) {
+                int h1;
+                int h2;
+                do {
+                    do {
+                        h1 = random.nextInt(grid.size());
+                    } while (cellColors[h1] >= 0);
+                    do {
+                        h2 = random.nextInt(grid.size());
+                    } while (cellColors[h2] >= 0 || h2 == h1);
+                } while (grid.isNeighbor(h1, h2));
+                cellColors[h1] = cellColors[h2] = c;
+                endpoints[c][0] = h1;
+                endpoints[c][1] = h2;
+            }
+            if (solver == null) solver = new PathSolver(grid);
+            PathSolver.Result result = solver.solve(endpoints, found);
+            if (!result.solved) return null;
+            return new Puzzle(grid.getRadius(), endpoints, result.paths);
+        }
+
+        Puzzle tryUnique(int colorCount) {
+            return generator.generateUnique(colorCount, 1, found);
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// exact solver for "connect all the pairs and cover every hex"
+//
+// depth first search growing each color path from both of its end points,
+// the growing ends are the heads and a color is done when its two heads join.
+// the search always extends the head with the fewest possible moves so that
+// forced moves never branch, and every node is pruned when
+//  - a free hex has less than two open neighbors to enter and leave it (dead hex)
+//  - the heads of a color can no longer meet through free hexes (stranded)
+//  - a region of free hexes touches no color having both of its heads
+//    next to the region, so nobody can fill it (region connectivity)
+//
+// the board is kept in BitGrid masks, the free hexes and the heads of each
+// color, so that a move and its undo are a few long operations and the checks
+// above work on all the hexes at once. so the map must be of radius 4 or less.
+// the numbers of free hexes and of finished colors are counted along, as
+// GameBoard does for the game end, so a finished or hopeless node is known at once
+//
+// the search is complete, no solution means that none exists
+//
+// the search can also start from the paths a player has drawn so far, then
+// they are kept as they are and only the rest is searched. a known solution
+// may be given as a guide, its moves are tried first, so a search whose
+// start agrees with it walks straight to it
+//
+// a puzzle the same after a symmetry of the map, see Symmetry, has the same
+// search below a move and below the move mapped by the symmetry, as long as
+// the symmetry keeps every hex moved so far in place. so only the first of
+// such moves is searched. the symmetries are those of the end points, so
+// this works only on a search from scratch
+//
+// a state of the search is only the free hexes and the heads of the colors,
+// whatever the paths behind the heads are, so the same state is reached by
+// paths of other shapes and again by the later searches of the same map.
+// with a TranspositionTable the states failed are kept in buckets picked by
+// their Zobrist hashes, a random key for each free hex and for each head of a
+// color xored together and updated by the keys of the hexes of a move. a
+// state in the table fails at once, the table compares the whole states so
+// the search stays exact. the keys are the same for every solver of a map of
+// the radius, so a table is kept across the searches of a map, e.g. the
+// attempts of a generator, but not across the maps
+public class PathSolver {
+
+    // search nodes between the checks of the cancel flag
+    private static final int CANCEL_CHECK_NODES = 1024;
+    // entries of the table made on the first solve, 512KB
+    public static final int DEFAULT_TABLE_BITS = 14;
+
+    public static class Result {
+        // true if a solution is found
+        public final boolean solved;
+        // hexes of each color path from the start to the end point, null if not solved
+        public final int[][] paths;
+        // number of search nodes visited
+        public final long nodes;
+        // true if the search is cancelled, then not solved tells nothing
+        public final boolean cancelled;
+        // lookups of the TranspositionTable found and not found, 0 without the table
+        public final long tableHits;
+        public final long tableMisses;
+
+        Result(boolean solved, int[][] paths, long nodes, boolean cancelled, long tableHits, long tableMisses) {
+            this.solved = solved;
+            this.paths = paths;
+            this.nodes = nodes;
+            this.cancelled = cancelled;
+            this.tableHits = tableHits;
+            this.tableMisses = tableMisses;
+        }
+    }
+
+    private final HexGrid grid;
+    private final BitGrid bits;
+    private final int size;
+
+    // hexes not taken by any path
+    private long free;
+    // both heads of each unfinished color, 0 when done
+    private long[] heads;
+    // hexes of each color path grown from both of the end points,
+    // paths[c][0] from the start point and paths[c][1] from the end point
+    private int[][][] paths;
+    private int[][] pathLength;
+    private boolean[] done;
+    private int colorCount;
+    // counters kept along the moves, see search()
+    private int freeCount;
+    private int doneCount;
+    private long nodes;
+    // set by another thread to stop the search, checked every CANCEL_CHECK_NODES
+    private AtomicBoolean cancel;
+    private boolean cancelled;
+    // System.nanoTime() to give up the search at, checked with the cancel flag
+    private long deadline;
+    private boolean hasDeadline;
+    // color and position in the path of each hex in the guide, -1 if none
+    private final int[] guideColor;
+    private final int[] guidePosition;
+    // symmetries of the map, created on the first use
+    private Symmetry symmetry;
+    // bits of the symmetries keeping the search state as it is, see Symmetry
+    private int symmetryMask;
+    private boolean symmetryPruning = true;
+    // states known to fail, null if not kept
+    private TranspositionTable table;
+    private boolean tableEnabled = true;
+    // the table of the current search, null if none or for too many colors
+    private TranspositionTable searchTable;
+    // Zobrist keys, zobrist[0][i] of the free hex i and zobrist[1 + c][i]
+    // of a head of color c at the hex i
+    private long[][] zobrist;
+    // hash of the free hexes and the heads, updated along the moves
+    private long hash;
+    // counts of the table at the start of the search
+    private long startHits;
+    private long startMisses;
+    // candidate moves of each search depth
+    private final int[][] moveBuffer;
+    private int nodeDepth;
+
+    // regions of free hexes
+    private final long[] regions;
+    // matching of the regions and the colors which can fill them,
+    // colorRegions[c] has the bit r set if color c can fill region r
+    private int[] colorRegion;
+    private int[] colorRegions;
+    private boolean[] triedColor;
+
+    public PathSolver(HexGrid grid) {
+        this.grid = grid;
+        this.bits = new BitGrid(grid);
+        this.size = grid.size();
+        regions = new long[size];
+        moveBuffer = new int[size + 1][HexGrid.DIRECTIONS];
+        guideColor = new int[size];
+        guidePosition = new int[size];
+    }
+
+    // endpoints[c][0] and endpoints[c][1] are the start and end points of color c
+    public Result solve(int[][] endpoints) {
+        return solve(endpoints, null);
+    }
+
+    // the search stops soon after the cancel flag is set
+    public Result solve(int[][] endpoints, AtomicBoolean cancel) {
+        return solve(endpoints, null, null, cancel, 0);
+    }
+
+    // the solution continuing the paths drawn so far, prefixes[c] is the path
+    // of color c from one of its end points, null or empty if none. guide is
+    // a solution of the end points to be tried first, or null. the search
+    // is cancelled as by the cancel flag after timeoutNanos unless it is 0
+    public Result solve(int[][] endpoints, int[][] prefixes, int[][] guide,
+                        AtomicBoolean cancel, long timeoutNanos) {
+        Arrays.fill(guideColor, -1);
+        if (guide != null) {
+            for (int c = 0; c < guide.length; c++) {
+                for (int i = 0; i < guide[c].length; i++) {
+                    guideColor[guide[c][i]] = c;
+                    guidePosition[guide[c][i]] = i;
+                }
+            }
+        }
+        this.cancel = cancel;
+        cancelled = false;
+        hasDeadline = timeoutNanos > 0;
+        deadline = System.nanoTime() + timeoutNanos;
+        colorCount = endpoints.length;
+        paths = new int[colorCount][2][size];
+        pathLength = new int[colorCount][2];
+        done = new boolean[colorCount];
+        heads = new long[colorCount];
+        colorRegion = new int[colorCount];
+        colorRegions = new int[colorCount];
+        triedColor = new boolean[colorCount];
+        nodes = 0;
+        nodeDepth = 0;
+
+        free = bits.all();
+        doneCount = 0;
+        for (int c = 0; c < colorCount; c++) {
+            for (int side = 0; side < 2; side++) {
+                long b = BitGrid.bit(endpoints[c][side]);
+                free &= ~b;
+                heads[c] |= b;
+                paths[c][side][0] = endpoints[c][side];
+                pathLength[c][side] = 1;
+            }
+        }
+        if (prefixes != null && !takePrefixes(endpoints, prefixes)) {
+            return new Result(false, null, 0, false, 0, 0);
+        }
+        freeCount = Long.bitCount(free);
+        hash = stateHash();
+        searchTable = null;
+        if (tableEnabled && colorCount <= TranspositionTable.MAX_COLORS) {
+            if (table == null) table = new TranspositionTable(DEFAULT_TABLE_BITS);
+            searchTable = table;
+            table.newSearch();
+            startHits = table.getHits();
+            startMisses = table.getMisses();
+        }
+        symmetryMask = 0;
+        if (symmetryPruning && prefixes == null && colorCount <= Symmetry.MAX_COLORS) {
+            if (symmetry == null) symmetry = new Symmetry(grid);
+            symmetryMask = symmetry.stabilizers(endpoints);
+        }
+
+        if (!search()) {
+            return result(false, null);
+        }
+
+        // joins both halves of each color path
+        int[][] solution = new int[colorCount][];
+        for (int c = 0; c < colorCount; c++) {
+            int n0 = pathLength[c][0];
+            int n1 = pathLength[c][1];
+            solution[c] = new int[n0 + n1];
+            System.arraycopy(paths[c][0], 0, solution[c], 0, n0);
+            for (int i = 0; i < n1; i++) {
+                solution[c][n0 + i] = paths[c][1][n1 - 1 - i];
+            }
+        }
+        return result(true, solution);
+    }
+
+    private Result result(boolean solved, int[][] solution) {
+        long hits = searchTable == null ? 0 : searchTable.getHits() - startHits;
+        long misses = searchTable == null ? 0 : searchTable.getMisses() - startMisses;
+        return new Result(solved, solution, nodes, cancelled, hits, misses);
+    }
+
+    // takes the hexes of the drawn paths, false if they cannot be a part of
+    // a solution as they run over another path or an end point
+    private boolean takePrefixes(int[][] endpoints, int[][] prefixes) {
+        for (int c = 0; c < colorCount; c++) {
+            int[] prefix = prefixes[c];
+            if (prefix == null || prefix.length < 2) continue;
+            int side = prefix[0] == endpoints[c][0] ? 0 : 1;
+            if (prefix[0] != endpoints[c][side]) return false;
+            int other = endpoints[c][1 - side];
+            for (int i = 1; i < prefix.length; i++) {
+                int hex = prefix[i];
+                if (!grid.isNeighbor(prefix[i - 1], hex)) return false;
+                if (hex == other) {
+                    // joined to the other end point
+                    if (i != prefix.length - 1) return false;
+                    heads[c] = 0;
+                    done[c] = true;
+                    doneCount++;
+                    break;
+                }
+                long b = BitGrid.bit(hex);
+                if ((free & b) == 0) return false;
+                free &= ~b;
+                heads[c] ^= BitGrid.bit(prefix[i - 1]) | b;
+                paths[c][side][pathLength[c][side]++] = hex;
+            }
+        }
+        return true;
+    }
+
+    private int head(int c, int side) {
+        return paths[c][side][pathLength[c][side] - 1];
+    }
+
+    // hash of the free hexes and the heads from scratch
+    private long stateHash() {
+        if (zobrist == null || zobrist.length < colorCount + 1) {
+            zobrist = new long[colorCount + 1][size];
+            for (int kind = 0; kind <= colorCount; kind++) {
+                for (int i = 0; i < size; i++) {
+                    // distinct for each kind and hex as mix64() is a bijection
+                    zobrist[kind][i] = SplitMix64.mix64(((long) kind << 32 | i) * 0x9e3779b97f4a7c15L + 1);
+                }
+            }
+        }
+        long h = hashOf(zobrist[0], free);
+        for (int c = 0; c < colorCount; c++) {
+            h ^= hashOf(zobrist[1 + c], heads[c]);
+        }
+        return h;
+    }
+
+    // keys of the hexes xored together
+    private static long hashOf(long[] keys, long hexes) {
+        long h = 0;
+        for (; hexes != 0; hexes &= hexes - 1) {
+            h ^= keys[Long.numberOfTrailingZeros(hexes)];
+        }
+        return h;
+    }
+
+    private boolean search() {
+        // unwinds the search quickly once cancelled
+        if (cancelled) return false;
+        if (++nodes % CANCEL_CHECK_NODES == 0
+                && ((cancel != null && cancel.get()) || (hasDeadline && System.nanoTime() - deadline > 0))) {
+            cancelled = true;
+            return false;
+        }
+
+        // all the colors connected
+        if (doneCount == colorCount) return freeCount == 0;
+        // every unfinished color needs a free hex unless its heads are next to each other,
+        // so no free hex left means only the joins
+        if (freeCount == 0 && !canJoinAll()) return false;
+
+        // picks the head of the unfinished colors with the fewest moves
+        int color = -1;
+        int side = 0;
+        int fewest = Integer.MAX_VALUE;
+        for (int c = 0; c < colorCount; c++) {
+            if (done[c]) continue;
+            boolean joinable = bits.isNeighbor(head(c, 0), head(c, 1));
+            for (int s = 0; s < 2; s++) {
+                int moves = countMoves(head(c, s)) + (joinable ? 1 : 0);
+                if (moves == 0) return false;
+                if (moves < fewest) {
+                    fewest = moves;
+                    color = c;
+                    side = s;
+                }
+            }
+        }
+
+        // failed before by other paths or in an earlier search
+        long allHeads = 0;
+        long headColors = 0;
+        if (searchTable != null) {
+            for (int c = 0; c < colorCount; c++) {
+                allHeads |= heads[c];
+            }
+            headColors = TranspositionTable.headColors(heads, colorCount);
+            if (searchTable.contains(hash, free, allHeads, headColors)) return false;
+        }
+        if (!isAlive()) return false;
+        long startNodes = nodes;
+
+        int head = head(color, side);
+        int[] path = paths[color][side];
+
+        // the symmetries keeping the head in place, each maps a move to
+        // another move searching the same, see the class comment
+        int savedMask = symmetryMask;
+        int mask = savedMask == 0 ? 0 : fixing(savedMask, head);
+
+        // the join first if the guide joins there
+        int other = head(color, 1 - side);
+        boolean joinable = bits.isNeighbor(head, other);
+        if (joinable && isGuided(color, head, other)) {
+            symmetryMask = mask;
+            if (join(color)) return true;
+            symmetryMask = savedMask;
+            joinable = false;
+        }
+
+        // tries to extend the head to the free hexes first, the move of the
+        // guide first and then the hex with the fewest free neighbors first
+        // (Warnsdorff's rule) to hug the walls
+        int[] moves = moveBuffer[nodeDepth];
+        int count = 0;
+        int[] neighbors = grid.neighbors(head);
+        for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+            int next = neighbors[direction];
+            if (next == HexGrid.NONE || (free & BitGrid.bit(next)) == 0) continue;
+            int rank = isGuided(color, head, next) ? 0 : HexGrid.DIRECTIONS + 1;
+            int key = (rank + countMoves(next)) * HexGrid.DIRECTIONS + direction;
+            int i = count++;
+            while (i > 0 && moves[i - 1] > key) {
+                moves[i] = moves[i - 1];
+                i--;
+            }
+            moves[i] = key;
+        }
+        nodeDepth++;
+        long headBit = BitGrid.bit(head);
+        long[] headKeys = zobrist[1 + color];
+        for (int i = 0; i < count; i++) {
+            int next = neighbors[moves[i] % HexGrid.DIRECTIONS];
+            if (mask != 0 && isMappedFromTried(mask, next, neighbors, moves, i)) continue;
+            symmetryMask = mask == 0 ? 0 : fixing(mask, next);
+            long move = headBit | BitGrid.bit(next);
+            long moveHash = zobrist[0][next] ^ headKeys[head] ^ headKeys[next];
+            free ^= BitGrid.bit(next);
+            freeCount--;
+            heads[color] ^= move;
+            hash ^= moveHash;
+            path[pathLength[color][side]++] = next;
+            if (search()) {
+                nodeDepth--;
+                return true;
+            }
+            pathLength[color][side]--;
+            hash ^= moveHash;
+            heads[color] ^= move;
+            freeCount++;
+            free ^= BitGrid.bit(next);
+        }
+        nodeDepth--;
+
+        // and then connects both of the heads
+        symmetryMask = mask;
+        if (joinable && join(color)) return true;
+        symmetryMask = savedMask;
+        // a cancelled search has not tried every move
+        if (searchTable != null && !cancelled) {
+            searchTable.put(hash, free, allHeads, headColors, nodes - startNodes);
+        }
+        return false;
+    }
+
+    // the symmetries of the mask keeping the hex in place
+    private int fixing(int mask, int hex) {
+        int fixed = 0;
+        for (int t = 1; t < Symmetry.TRANSFORMS; t++) {
+            if ((mask & (1 << t)) != 0 && symmetry.apply(t, hex) == hex) fixed |= 1 << t;
+        }
+        return fixed;
+    }
+
+    // true if a symmetry of the mask maps the move to one of the moves tried
+    // before it, moves[0] to moves[tried - 1]
+    private boolean isMappedFromTried(int mask, int next, int[] neighbors, int[] moves, int tried) {
+        for (int t = 1; t < Symmetry.TRANSFORMS; t++) {
+            if ((mask & (1 << t)) == 0) continue;
+            int mapped = symmetry.apply(t, next);
+            if (mapped == next) continue;
+            for (int i = 0; i < tried; i++) {
+                if (neighbors[moves[i] % HexGrid.DIRECTIONS] == mapped) return true;
+            }
+        }
+        return false;
+    }
+
+    // whether the states failed are kept in a table for the later nodes and
+    // searches, on by default. the result is the same either way
+    public void setTableEnabled(boolean tableEnabled) {
+        this.tableEnabled = tableEnabled;
+        if (!tableEnabled) table = null;
+    }
+
+    // a table of the states failed to share with the solvers of maps of the
+    // same radius, null for none
+    public void setTable(TranspositionTable table) {
+        this.table = table;
+        tableEnabled = table != null;
+    }
+
+    // the table of the states failed, e.g. for the hit rate, null until the
+    // first solve or if not enabled
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // whether moves mapped by the symmetries of the puzzle are searched only
+    // once, on by default. the result is the same either way
+    public void setSymmetryPruning(boolean symmetryPruning) {
+        this.symmetryPruning = symmetryPruning;
+    }
+
+    // finishes the color by joining its heads
+    private boolean join(int color) {
+        long saved = heads[color];
+        long joinHash = hashOf(zobrist[1 + color], saved);
+        done[color] = true;
+        doneCount++;
+        heads[color] = 0;
+        hash ^= joinHash;
+        if (search()) return true;
+        hash ^= joinHash;
+        heads[color] = saved;
+        doneCount--;
+        done[color] = false;
+        return false;
+    }
+
+    // true if the guide has the step between the hexes in the path of the color
+    private boolean isGuided(int color, int from, int to) {
+        return guideColor[from] == color && guideColor[to] == color
+                && Math.abs(guidePosition[from] - guidePosition[to]) == 1;
+    }
+
+    // true if the heads of every unfinished color are next to each other
+    private boolean canJoinAll() {
+        for (int c = 0; c < colorCount; c++) {
+            if (!done[c] && !bits.isNeighbor(head(c, 0), head(c, 1))) return false;
+        }
+        return true;
+    }
+
+    // number of free hexes next to the head
+    private int countMoves(int head) {
+        return Long.bitCount(bits.neighbors(head) & free);
+    }
+
+    // checks the dead hexes, the stranded colors and the unreachable regions
+    private boolean isAlive() {
+        if (freeCount == 0) return true;
+
+        // a free hex is entered and left through free hexes or heads
+        long allHeads = 0;
+        int active = colorCount - doneCount;
+        for (int c = 0; c < colorCount; c++) {
+            allHeads |= heads[c];
+        }
+        if ((free & ~bits.atLeastTwo(free | allHeads)) != 0) return false;
+
+        // and if only heads are left around it, two of them must be of the same color
+        long enclosed = free & ~bits.expand(free);
+        while (enclosed != 0) {
+            int hex = Long.numberOfTrailingZeros(enclosed);
+            enclosed &= enclosed - 1;
+            if (!hasHeadPair(bits.neighbors(hex))) return false;
+        }
+
+        // the rest of a color path runs inside a single region, so the heads
+        // of a color must meet in a region (or be next to each other) and every
+        // region needs a color of its own
+        int regionCount = 0;
+        for (long rest = free; rest != 0; ) {
+            long region = bits.fill(rest & -rest, free);
+            rest &= ~region;
+            if (regionCount == active) return false;
+            regions[regionCount++] = region;
+        }
+        for (int c = 0; c < colorCount; c++) {
+            colorRegions[c] = 0;
+            if (done[c]) continue;
+            int head = head(c, 0);
+            int other = head(c, 1);
+            long headFree = bits.neighbors(head) & free;
+            long otherFree = bits.neighbors(other) & free;
+            for (int r = 0; r < regionCount; r++) {
+                if ((headFree & regions[r]) != 0 && (otherFree & regions[r]) != 0) {
+                    colorRegions[c] |= 1 << r;
+                }
+            }
+            if (colorRegions[c] == 0 && !bits.isNeighbor(head, other)) return false;
+        }
+
+        // matches every region to a distinct color
+        Arrays.fill(colorRegion, 0, colorCount, -1);
+        for (int r = 0; r < regionCount; r++) {
+            Arrays.fill(triedColor, 0, colorCount, false);
+            if (!matchRegion(r)) return false;
+        }
+        return true;
+    }
+
+    // true if two of the hexes are the heads of the same color
+    private boolean hasHeadPair(long hexes) {
+        for (int c = 0; c < colorCount; c++) {
+            if (Long.bitCount(hexes & heads[c]) == 2) return true;
+        }
+        return false;
+    }
+
+    // augmenting path for the bipartite matching of the regions and the colors
+    private boolean matchRegion(int r) {
+        for (int c = 0; c < colorCount; c++) {
+            if (triedColor[c] || (colorRegions[c] & (1 << r)) == 0) continue;
+            triedColor[c] = true;
+            if (colorRegion[c] < 0 || matchRegion(colorRegion[c])) {
+                colorRegion[c] = r;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,25 @@
+package org.nabe.koshigaya;
+
+// a generated puzzle, i.e. the start and end points of each color on a map of
+// the radius, together with a solution if known
+//
+// the hexes are the indexes of HexGrid of the same radius
+public class Puzzle {
+
+    // size of hexagon i.e. distance from center
+    public final int radius;
+    // endpoints[c][0] and endpoints[c][1] are the start and end points of color c
+    public final int[][] endpoints;
+    // hexes of each color path from the start to the end point, null if unknown
+    public final int[][] paths;
+
+    public Puzzle(int radius, int[][] endpoints, int[][] paths) {
+        this.radius = radius;
+        this.endpoints = endpoints;
+        this.paths = paths;
+    }
+
+    public int getColorCount() {
+        return endpoints.length;
+    }
+}
@@ -0,0 +1,226 @@
+package org.nabe.koshigaya;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+// precomputed puzzles in a compact binary file, read in place from a buffer
+// (usually memory mapped) so that serving a puzzle needs neither parsing the
+// whole file nor any generation
+//
+// the file is big endian and laid out as
+//   header  int magic "HXPB", short version, short number of sections
+//   section byte radius, byte number of colors, byte flags, byte unused,
+//           int number of records, int offset of the first record
+//   record  byte radius, byte number of colors,
+//           start and end point of each color,
+//           the solution if the section has HAS_SOLUTION, i.e. the hexes of
+//           every color path from its start to its end point, color by color
+//
+// hexes are HexGrid indexes in unsigned bytes, enough for radius 8 (217 hexes).
+// all the records of a section have the same size, so the record i is found
+// by its offset without reading the others
+//
+// the puzzles are written in the canonical form of Symmetry by
+// PuzzleBankBuilder, all in the same orientation with the first color at the
+// top left, so random() shuffles them, see Symmetry.shuffle(). get() returns
+// a record as written
+public class PuzzleBank {
+
+    public static final int MAGIC = 0x48585042;
+    public static final int VERSION = 1;
+    // flag of a section whose records have the solution
+    public static final int HAS_SOLUTION = 1;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int SECTION_SIZE = 12;
+
+    // largest radius of the hexes in unsigned bytes
+    private static final int MAX_RADIUS = 8;
+
+    private final ByteBuffer buffer;
+    private final int sectionCount;
+    // symmetries of each radius, created on the first shuffle of the radius
+    private final Symmetry[] symmetries = new Symmetry[MAX_RADIUS + 1];
+
+    public PuzzleBank(ByteBuffer buffer) throws IOException {
+        // duplicate() for an own position, only the absolute gets are used anyway
+        this.buffer = buffer.duplicate();
+        if (this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a puzzle bank");
+        }
+        if (this.buffer.getShort(4) != VERSION) {
+            throw new IOException("unknown puzzle bank version " + this.buffer.getShort(4));
+        }
+        sectionCount = this.buffer.getShort(6);
+        for (int s = 0; s < sectionCount; s++) {
+            long end = sectionOffset(s) + (long) sectionCount(s) * recordSize(s);
+            if (end > this.buffer.limit()) throw new IOException("puzzle bank is truncated");
+        }
+    }
+
+    // number of puzzles of the radius and the colors
+    public int count(int radius, int colorCount) {
+        int s = findSection(radius, colorCount);
+        return s < 0 ? 0 : sectionCount(s);
+    }
+
+    // a puzzle picked at random and shuffled, null if there is none of the
+    // radius and the colors
+    public Puzzle random(int radius, int colorCount, Random random) {
+        int count = count(radius, colorCount);
+        if (count == 0) return null;
+        return shuffle(get(radius, colorCount, random.nextInt(count)), random);
+    }
+
+    // a puzzle of the band of DifficultyRater picked at random, trying the
+    // puzzles up to the attempts. null if none is found, or if the puzzles of
+    // the radius and the colors have no solution to rate
+    public Puzzle random(int radius, int colorCount, int band, DifficultyRater rater,
+                         Random random, int attempts) {
+        int count = count(radius, colorCount);
+        if (count == 0) return null;
+        for (int i = 0; i < attempts; i++) {
+            Puzzle puzzle = get(radius, colorCount, random.nextInt(count));
+            if (puzzle.paths == null) return null;
+            // the guesses of the rater depend on the order of the colors a little
+            puzzle = shuffle(puzzle, random);
+            if (rater.rate(puzzle).getBand() == band) return puzzle;
+        }
+        return null;
+    }
+
+    private Puzzle shuffle(Puzzle puzzle, Random random) {
+        if (symmetries[puzzle.radius] == null) symmetries[puzzle.radius] = new Symmetry(new HexGrid(puzzle.radius));
+        return symmetries[puzzle.radius].shuffle(puzzle, random);
+    }
+
+    public Puzzle get(int radius, int colorCount, int i) {
+        int s = findSection(radius, colorCount);
+        if (s < 0 || i < 0 || i >= sectionCount(s)) {
+            throw new IndexOutOfBoundsException("no puzzle " + i + " of radius " + radius
+                    + " with " + colorCount + " colors");
+        }
+        int p = sectionOffset(s) + i * recordSize(s);
+        int end = p + recordSize(s);
+        p += 2;
+
+        int[][] endpoints = new int[colorCount][2];
+        for (int c = 0; c < colorCount; c++) {
+            endpoints[c][0] = buffer.get(p++) & 0xff;
+            endpoints[c][1] = buffer.get(p++) & 0xff;
+        }
+        if ((flags(s) & HAS_SOLUTION) == 0) {
+            return new Puzzle(radius, endpoints, null);
+        }
+
+        // every path runs up to the end point of its color inside the record
+        int[][] paths = new int[colorCount][];
+        for (int c = 0; c < colorCount; c++) {
+            int length = 1;
+            while (p + length <= end && (buffer.get(p + length - 1) & 0xff) != endpoints[c][1]) length++;
+            if (p + length > end) {
+                throw new IllegalStateException("bad puzzle " + i + " of radius " + radius
+                        + " with " + colorCount + " colors, the path of color " + c + " has no end");
+            }
+            paths[c] = new int[length];
+            for (int j = 0; j < length; j++) {
+                paths[c][j] = buffer.get(p++) & 0xff;
+            }
+        }
+        return new Puzzle(radius, endpoints, paths);
+    }
+
+    private int findSection(int radius, int colorCount) {
+        for (int s = 0; s < sectionCount; s++) {
+            int p = HEADER_SIZE + s * SECTION_SIZE;
+            if (buffer.get(p) == radius && buffer.get(p + 1) == colorCount) return s;
+        }
+        return -1;
+    }
+
+    private int flags(int s) {
+        return buffer.get(HEADER_SIZE + s * SECTION_SIZE + 2);
+    }
+
+    private int sectionCount(int s) {
+        return buffer.getInt(HEADER_SIZE + s * SECTION_SIZE + 4);
+    }
+
+    private int sectionOffset(int s) {
+        return buffer.getInt(HEADER_SIZE + s * SECTION_SIZE + 8);
+    }
+
+    private int recordSize(int s) {
+        int p = HEADER_SIZE + s * SECTION_SIZE;
+        return recordSize(buffer.get(p), buffer.get(p + 1), (flags(s) & HAS_SOLUTION) != 0);
+    }
+
+    private static int recordSize(int radius, int colorCount, boolean hasSolution) {
+        int size = 2 + colorCount * 2;
+        if (hasSolution) size += 3 * radius * (radius + 1) + 1;
+        return size;
+    }
+
+    // writes the sections of the puzzles, each section of the same radius and
+    // colors. the solutions are written if every puzzle of the section has one
+    public static void write(OutputStream stream, List<Puzzle[]> sections) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(sections.size());
+
+        int offset = HEADER_SIZE + sections.size() * SECTION_SIZE;
+        for (Puzzle[] puzzles : sections) {
+            Puzzle first = puzzles[0];
+            boolean hasSolution = hasSolution(puzzles);
+            out.writeByte(first.radius);
+            out.writeByte(first.getColorCount());
+            out.writeByte(hasSolution ? HAS_SOLUTION : 0);
+            out.writeByte(0);
+            out.writeInt(puzzles.length);
+            out.writeInt(offset);
+            offset += puzzles.length * recordSize(first.radius, first.getColorCount(), hasSolution);
+        }
+
+        for (Puzzle[] puzzles : sections) {
+            boolean hasSolution = hasSolution(puzzles);
+            for (Puzzle puzzle : puzzles) {
+                if (puzzle.radius != puzzles[0].radius || puzzle.getColorCount() != puzzles[0].getColorCount()) {
+                    throw new IllegalArgumentException("puzzles of a section must be of the same radius and colors");
+                }
+                out.writeByte(puzzle.radius);
+                out.writeByte(puzzle.getColorCount());
+                for (int[] points : puzzle.endpoints) {
+                    out.writeByte(points[0]);
+                    out.writeByte(points[1]);
+                }
+                if (hasSolution) {
+                    int length = 0;
+                    for (int[] path : puzzle.paths) {
+                        length += path.length;
+                    }
+                    if (length != 3 * puzzle.radius * (puzzle.radius + 1) + 1) {
+                        throw new IllegalArgumentException("solution must cover every hex");
+                    }
+                    for (int[] path : puzzle.paths) {
+                        for (int hex : path) {
+                            out.writeByte(hex);
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static boolean hasSolution(Puzzle[] puzzles) {
+        for (Puzzle puzzle : puzzles) {
+            if (puzzle.paths == null) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package org.nabe.koshigaya;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// writes the puzzle bank of the app, run by ./gradlew :core:generatePuzzleBank
+//
+// usage: PuzzleBankBuilder <file> [puzzles per radius] [min radius] [max radius]
+//
+// every puzzle is checked against its solution before it is written, and the
+// seed is fixed so that the same bank is written every time. the puzzles are
+// written in the canonical form of Symmetry, and a puzzle the same as one
+// written under the symmetries is skipped. on radius 2 more than a third of
+// the generated puzzles are such duplicates. PuzzleBank.random() serves them
+// in a random form, see Symmetry.shuffle()
+public class PuzzleBankBuilder {
+
+    private static final long SEED = 1;
+    // generated puzzles per puzzle written at most, a small map has only a
+    // few thousands of different puzzles
+    private static final int ATTEMPTS_PER_PUZZLE = 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PuzzleBankBuilder <file> [puzzles per radius] [min radius] [max radius]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int minRadius = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int maxRadius = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        SplitMix64 random = new SplitMix64(SEED);
+        List<Puzzle[]> sections = new ArrayList<>();
+        for (int radius = minRadius; radius <= maxRadius; radius++) {
+            long startTime = System.nanoTime();
+            HexGrid grid = new HexGrid(radius);
+            PuzzleGenerator generator = new PuzzleGenerator(grid, random.split());
+            Symmetry symmetry = new Symmetry(grid);
+            Set<Symmetry.Key> keys = new HashSet<>();
+            List<Puzzle> puzzles = new ArrayList<>();
+            long attempts = (long) count * ATTEMPTS_PER_PUZZLE;
+            int duplicates = 0;
+            for (long i = 0; i < attempts && puzzles.size() < count; i++) {
+                Puzzle puzzle = generator.generate(GameBoard.DEFAULT_COLORS);
+                if (!keys.add(symmetry.key(puzzle.endpoints))) {
+                    duplicates++;
+                    continue;
+                }
+                puzzle = symmetry.canonical(puzzle);
+                if (!isSolvedByItsPaths(grid, puzzle)) {
+                    throw new IllegalStateException("generated a puzzle not solved by its paths");
+                }
+                puzzles.add(puzzle);
+            }
+            sections.add(puzzles.toArray(new Puzzle[0]));
+            System.out.println("radius " + radius + ": " + puzzles.size() + " puzzles, "
+                    + duplicates + " duplicates skipped in "
+                    + (System.nanoTime() - startTime) / 1000000 + " ms");
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            PuzzleBank.write(out, sections);
+        }
+        System.out.println("wrote " + file + " (" + file.length() + " bytes)");
+    }
+
+    // every path connects its start and end points through neighbors,
+    // and the paths cover every hex once
+    static boolean isSolvedByItsPaths(HexGrid grid, Puzzle puzzle) {
+        boolean[] covered = new boolean[grid.size()];
+        for (int c = 0; c < puzzle.getColorCount(); c++) {
+            int[] path = puzzle.paths[c];
+            if (path[0] != puzzle.endpoints[c][0] || path[path.length - 1] != puzzle.endpoints[c][1]) return false;
+            for (int i = 0; i < path.length; i++) {
+                if (covered[path[i]]) return false;
+                covered[path[i]] = true;
+                if (i > 0 && !grid.isNeighbor(path[i - 1], path[i])) return false;
+            }
+        }
+        for (boolean b : covered) {
+            if (!b) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// builds puzzles from a random cover of the map by paths instead of
+// searching random end points which may have no solution
+//
+// 1. a hamiltonian path visiting every hex is made by walking the rows in
+//    a zigzag, and then shuffled by random backbite moves
+// 2. the path is cut into the segments, one segment for each color
+// 3. the both ends of the segments are the start and end points
+//
+// every puzzle has the segments as a solution, so nothing has to be verified
+// and the time to generate is almost the same for every puzzle
+//
+// generate(colorCount, seed) makes a puzzle from the seed alone, so a puzzle
+// is addressed by its seed (puzzle #N, the puzzle of the day) and never stored
+public class PuzzleGenerator {
+
+    // backbite moves per hex to shuffle the hamiltonian path
+    private static final int BACKBITES_PER_HEX = 20;
+    // shortest segment, start and end points must not be the same or neighbors
+    private static final int MIN_SEGMENT = 3;
+    // tries to cut a path before shuffling it again
+    private static final int CUT_TRIES = 32;
+
+    private final HexGrid grid;
+    private final Random random;
+    // random numbers of the seeded puzzles
+    private final SplitMix64 seeded = new SplitMix64(0);
+
+    // hamiltonian path and the position of each hex in it
+    private final int[] path;
+    private final int[] position;
+    private final int[] cuts;
+
+    // created on the first generateUnique()
+    private SolutionCounter counter;
+    private SolutionCounter.Result lastCount;
+    // created on the first generateRated()
+    private DifficultyRater rater;
+    private DifficultyRater.Rating lastRating;
+
+    public PuzzleGenerator(HexGrid grid, Random random) {
+        this.grid = grid;
+        this.random = random;
+        path = new int[grid.size()];
+        position = new int[grid.size()];
+        cuts = new int[grid.size()];
+    }
+
+    public HexGrid getGrid() {
+        return grid;
+    }
+
+    // most colors a puzzle of the map can have, every segment needs MIN_SEGMENT hexes
+    public static int maxColorCount(HexGrid grid) {
+        return grid.size() / MIN_SEGMENT;
+    }
+
+    public Puzzle generate(int colorCount) {
+        return generate(colorCount, random);
+    }
+
+    // the same seed makes the same puzzle on the same radius
+    public Puzzle generate(int colorCount, long seed) {
+        seeded.setSeed(seed);
+        return generate(colorCount, seeded);
+    }
+
+    private Puzzle generate(int colorCount, Random random) {
+        if (colorCount > maxColorCount(grid)) {
+            throw new IllegalArgumentException("too many colors for radius " + grid.getRadius());
+        }
+        while (true) {
+            shufflePath(random);
+            for (int i = 0; i < CUT_TRIES; i++) {
+                Puzzle puzzle = cutPath(colorCount, random);
+                if (puzzle != null) return puzzle;
+            }
+        }
+    }
+
+    // generates puzzles until one has exactly one solution, null if none is
+    // found in the attempts. unique puzzles are rare with a few colors on a
+    // large map, so the attempts should be limited by the caller
+    public Puzzle generateUnique(int colorCount, int attempts) {
+        return generateUnique(colorCount, attempts, null);
+    }
+
+    // null as well soon after the cancel flag is set
+    public Puzzle generateUnique(int colorCount, int attempts, AtomicBoolean cancel) {
+        if (counter == null) counter = new SolutionCounter(grid);
+        for (int i = 0; i < attempts; i++) {
+            Puzzle puzzle = generate(colorCount);
+            // a puzzle made by generate() has at least one solution,
+            // so counting up to 2 tells if it is unique
+            lastCount = counter.count(puzzle.endpoints, 2, cancel);
+            if (lastCount.cancelled) return null;
+            if (lastCount.count == 1) return puzzle;
+        }
+        return null;
+    }
+
+    // generates puzzles until one is in the band of DifficultyRater, null if
+    // none is found in the attempts. each band has about a quarter of the
+    // puzzles, but the higher bands are empty where the puzzles have almost a
+    // single score (6 colors on radius 2), so the attempts should be limited
+    // by the caller
+    public Puzzle generateRated(int colorCount, int band, int attempts) {
+        if (rater == null) rater = new DifficultyRater(grid);
+        for (int i = 0; i < attempts; i++) {
+            Puzzle puzzle = generate(colorCount);
+            lastRating = rater.rate(puzzle);
+            if (lastRating.getBand() == band) return puzzle;
+        }
+        return null;
+    }
+
+    // rating of the last puzzle tried by generateRated()
+    public DifficultyRater.Rating getLastRating() {
+        return lastRating;
+    }
+
+    // result of counting the last puzzle tried by generateUnique()
+    public SolutionCounter.Result getLastCount() {
+        return lastCount;
+    }
+
+    // makes a random hamiltonian path in path[]
+    private void shufflePath(Random random) {
+        int size = grid.size();
+
+        // zigzag through the rows, the last hexes of the neighboring rows
+        // (and the first hexes) are always neighbors on a hexagon map
+        int i = 0;
+        int row = 0;
+        int rowStart = 0;
+        while (rowStart < size) {
+            int rowLength = rowLength(row);
+            for (int j = 0; j < rowLength; j++) {
+                path[i++] = (row & 1) == 0 ? rowStart + j : rowStart + rowLength - 1 - j;
+            }
+            rowStart += rowLength;
+            row++;
+        }
+        for (i = 0; i < size; i++) {
+            position[path[i]] = i;
+        }
+
+        int moves = BACKBITES_PER_HEX * size;
+        for (i = 0; i < moves; i++) {
+            backbite(random.nextBoolean(), random);
+        }
+    }
+
+    private int rowLength(int row) {
+        int radius = grid.getRadius();
+        return radius * 2 + 1 - Math.abs(row - radius);
+    }
+
+    // connects an end of the path to one of its neighbors in the path and
+    // reverses the part between them, so that the path stays hamiltonian
+    private void backbite(boolean atTail, Random random) {
+        int last = path.length - 1;
+        int end = atTail ? path[last] : path[0];
+        int next = grid.neighbor(end, random.nextInt(HexGrid.DIRECTIONS));
+        if (next == HexGrid.NONE) return;
+        int i = position[next];
+        if (atTail) {
+            if (i == last - 1) return;
+            reverse(i + 1, last);
+        } else {
+            if (i == 1) return;
+            reverse(0, i - 1);
+        }
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            int h = path[from];
+            path[from] = path[to];
+            path[to] = h;
+            position[path[from]] = from;
+            position[path[to]] = to;
+            from++;
+            to--;
+        }
+    }
+
+    // cuts path[] at random positions into the segments,
+    // null if the start and end point of a segment are neighbors
+    private Puzzle cutPath(int colorCount, Random random) {
+        int size = grid.size();
+
+        // random lengths of at least MIN_SEGMENT hexes, cuts[c] is the start of segment c
+        int spare = size - colorCount * MIN_SEGMENT;
+        for (int c = 0; c < colorCount - 1; c++) {
+            cuts[c] = random.nextInt(spare + 1);
+        }
+        Arrays.sort(cuts, 0, colorCount - 1);
+        for (int c = colorCount - 1; c > 0; c--) {
+            cuts[c] = cuts[c - 1] + c * MIN_SEGMENT;
+        }
+        cuts[0] = 0;
+
+        int[][] endpoints = new int[colorCount][2];
+        int[][] paths = new int[colorCount][];
+        for (int c = 0; c < colorCount; c++) {
+            int from = cuts[c];
+            int to = c + 1 < colorCount ? cuts[c + 1] : size;
+            int start = path[from];
+            int end = path[to - 1];
+            if (grid.isNeighbor(start, end)) return null;
+            endpoints[c][0] = start;
+            endpoints[c][1] = end;
+            paths[c] = Arrays.copyOfRange(path, from, to);
+        }
+        return new Puzzle(grid.getRadius(), endpoints, paths);
+    }
+}
@@ -0,0 +1,125 @@
+package org.nabe.koshigaya;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// a few puzzles generated ahead on one long lived background thread
+//
+// the thread fills the queue up to its capacity and waits, and every puzzle
+// taken out lets it generate the next one, so a new game takes a ready puzzle
+// at once and the refill runs behind it. the generator is owned by the thread,
+// so it must not be shared with the board
+public class PuzzleQueue {
+
+    // called on the background thread when a puzzle is put into the queue
+    public interface Listener {
+        void onPuzzleReady(PuzzleQueue queue);
+    }
+
+    private final PuzzleGenerator generator;
+    private final int colorCount;
+    private final BlockingQueue<Puzzle> ready;
+    private final Thread worker;
+    private volatile Listener listener;
+    // records the refills too if not null
+    private volatile Metrics metrics;
+
+    // metrics of the refills, i.e. generating a puzzle for the queue
+    private volatile long refillCount = 0;
+    private volatile long lastRefillNanos = 0;
+    private volatile long maxRefillNanos = 0;
+    private volatile long totalRefillNanos = 0;
+
+    public PuzzleQueue(PuzzleGenerator generator, int colorCount, int capacity) {
+        this.generator = generator;
+        this.colorCount = colorCount;
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                refill();
+            }
+        }, "PuzzleQueue");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // records the time of every refill to Metrics.GENERATE_NANOS, null to stop
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    // stops the thread, the queue cannot be started again
+    public void stop() {
+        worker.interrupt();
+    }
+
+    // a ready puzzle, null if none is ready yet
+    public Puzzle poll() {
+        return ready.poll();
+    }
+
+    // waits for a ready puzzle
+    public Puzzle take() throws InterruptedException {
+        return ready.take();
+    }
+
+    public int getCapacity() {
+        return ready.size() + ready.remainingCapacity();
+    }
+
+    // number of ready puzzles
+    public int getDepth() {
+        return ready.size();
+    }
+
+    public long getRefillCount() {
+        return refillCount;
+    }
+
+    public long getLastRefillNanos() {
+        return lastRefillNanos;
+    }
+
+    public long getMaxRefillNanos() {
+        return maxRefillNanos;
+    }
+
+    public long getAverageRefillNanos() {
+        long count = refillCount;
+        return count == 0 ? 0 : totalRefillNanos / count;
+    }
+
+    private void refill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long startTime = System.nanoTime();
+                Puzzle puzzle = generator.generate(colorCount);
+                long nanos = System.nanoTime() - startTime;
+
+                // only this thread writes the metrics
+                lastRefillNanos = nanos;
+                maxRefillNanos = Math.max(maxRefillNanos, nanos);
+                totalRefillNanos += nanos;
+                refillCount++;
+                Metrics m = metrics;
+                if (m != null) m.record(Metrics.GENERATE_NANOS, nanos);
+
+                // blocks while the queue is full
+                ready.put(puzzle);
+                Listener l = listener;
+                if (l != null) l.onPuzzleReady(this);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package org.nabe.koshigaya;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// counts the solutions of a puzzle by dynamic programming over the frontier
+//
+// the hexes are swept in the index order, i.e. row by row, deciding for each
+// hex which edges to its already swept neighbors are used by a path. only the
+// swept hexes which still have unswept neighbors (the frontier) matter for the
+// rest of the sweep, so the partial solutions are merged by the state of the
+// frontier and counted together. the state of a frontier hex is one of
+//  - EMPTY   no edge yet
+//  - SAT     all of its edges are decided (2 for a hex, 1 for a start or end point)
+//  - COLORED one edge, and the other end of its path piece is a point of the color
+//  - MATE    one edge, and the other end of its path piece is the frontier hex
+//
+// a hex must be SAT when it leaves the frontier, pieces must not close a loop
+// and pieces of different colors must not be joined. the counts are capped at
+// the limit, so "more than one solution" is known without counting them all.
+// the cancel flag is checked once per hex of the sweep
+public class SolutionCounter {
+
+    private static final int EMPTY = 0;
+    private static final int SAT = 1;
+    private static final int COLORED = 2;
+    // the other end of a piece is a start or end point
+    private static final int TERMINAL = -1;
+
+    public static class Result {
+        // number of solutions, at most the limit
+        public final long count;
+        // true if the count reached the limit, there may be more solutions
+        public final boolean capped;
+        // time spent for counting
+        public final long nanos;
+        // largest number of frontier states of a sweep step
+        public final int maxStates;
+        // true if the count is cancelled, then the count tells nothing
+        public final boolean cancelled;
+
+        Result(long count, boolean capped, long nanos, int maxStates, boolean cancelled) {
+            this.count = count;
+            this.capped = capped;
+            this.nanos = nanos;
+            this.maxStates = maxStates;
+            this.cancelled = cancelled;
+        }
+    }
+
+    private final HexGrid grid;
+    private final int size;
+    // frontier slots of the neighbors swept before each hex
+    private final int[][] backwardSlot;
+    // frontier after sweeping each hex, frontiers[v + 1] after hex v
+    private final int[][] frontiers;
+    // hexes leaving the frontier at each hex
+    private final boolean[][] leaving;
+    // unswept neighbors of each frontier hex, remaining[v][slot] after hex v
+    private final int[][] remaining;
+    private final int maxFrontier;
+
+    // color of the start or end point at each hex, -1 if none
+    private final int[] terminalColor;
+    private int mateBase;
+    private int bits;
+    private long mask;
+
+    // working state of the frontier and the sweeping hex
+    private final int[] base;
+    private final int[] work;
+    private final int[] renumber;
+    private final int[] slotCell;
+
+    private LongCountMap current = new LongCountMap();
+    private LongCountMap next = new LongCountMap();
+
+    public SolutionCounter(HexGrid grid) {
+        this.grid = grid;
+        this.size = grid.size();
+
+        int[] lastNeighbor = new int[size];
+        int[][] backward = new int[size][];
+        for (int v = 0; v < size; v++) {
+            lastNeighbor[v] = v;
+            int count = 0;
+            int[] before = new int[HexGrid.DIRECTIONS];
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int n = grid.neighbor(v, direction);
+                if (n == HexGrid.NONE) continue;
+                if (n < v) before[count++] = n;
+                lastNeighbor[v] = Math.max(lastNeighbor[v], n);
+            }
+            backward[v] = Arrays.copyOf(before, count);
+            Arrays.sort(backward[v]);
+        }
+
+        frontiers = new int[size + 1][];
+        leaving = new boolean[size][];
+        frontiers[0] = new int[0];
+        int largest = 0;
+        for (int v = 0; v < size; v++) {
+            int[] prev = frontiers[v];
+            leaving[v] = new boolean[prev.length + 1];
+            int[] f = new int[prev.length + 1];
+            int count = 0;
+            for (int i = 0; i <= prev.length; i++) {
+                int u = i < prev.length ? prev[i] : v;
+                if (lastNeighbor[u] == v) {
+                    leaving[v][i] = true;
+                } else {
+                    f[count++] = u;
+                }
+            }
+            frontiers[v + 1] = Arrays.copyOf(f, count);
+            largest = Math.max(largest, prev.length + 1);
+        }
+        maxFrontier = largest;
+
+        // the neighbors swept before a hex are always in the frontier
+        backwardSlot = new int[size][];
+        for (int v = 0; v < size; v++) {
+            backwardSlot[v] = new int[backward[v].length];
+            for (int i = 0; i < backward[v].length; i++) {
+                backwardSlot[v][i] = Arrays.binarySearch(frontiers[v], backward[v][i]);
+            }
+        }
+
+        // a frontier hex needing more edges than its unswept neighbors is dead
+        remaining = new int[size][];
+        for (int v = 0; v < size; v++) {
+            int[] f = frontiers[v + 1];
+            remaining[v] = new int[f.length];
+            for (int i = 0; i < f.length; i++) {
+                for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                    if (grid.neighbor(f[i], direction) > v) remaining[v][i]++;
+                }
+            }
+        }
+
+        terminalColor = new int[size];
+        base = new int[maxFrontier];
+        work = new int[maxFrontier];
+        renumber = new int[maxFrontier];
+        slotCell = new int[maxFrontier];
+    }
+
+    // true if the frontier states of the colors fit in the 64 bit keys
+    public boolean isSupported(int colorCount) {
+        return bitsFor(colorCount) * maxFrontier <= 64;
+    }
+
+    private int bitsFor(int colorCount) {
+        int values = COLORED + colorCount + maxFrontier;
+        return 32 - Integer.numberOfLeadingZeros(values - 1);
+    }
+
+    // counts the solutions up to the limit,
+    // endpoints[c][0] and endpoints[c][1] are the start and end points of color c
+    public Result count(int[][] endpoints, long limit) {
+        return count(endpoints, limit, null);
+    }
+
+    // the count stops before the next hex once the cancel flag is set
+    public Result count(int[][] endpoints, long limit, AtomicBoolean cancel) {
+        long startTime = System.nanoTime();
+        int colorCount = endpoints.length;
+        if (!isSupported(colorCount)) {
+            throw new IllegalArgumentException("too large to count, radius " + grid.getRadius()
+                    + " with " + colorCount + " colors");
+        }
+        mateBase = COLORED + colorCount;
+        bits = bitsFor(colorCount);
+        mask = (1L << bits) - 1;
+
+        Arrays.fill(terminalColor, -1);
+        for (int c = 0; c < colorCount; c++) {
+            terminalColor[endpoints[c][0]] = c;
+            terminalColor[endpoints[c][1]] = c;
+        }
+
+        int maxStates = 1;
+        current.clear();
+        current.add(0L, 1, limit);
+        for (int v = 0; v < size && current.size() > 0; v++) {
+            if (cancel != null && cancel.get()) {
+                return new Result(0, false, System.nanoTime() - startTime, maxStates, true);
+            }
+            next.clear();
+            sweep(v, limit);
+            LongCountMap swap = current;
+            current = next;
+            next = swap;
+            maxStates = Math.max(maxStates, current.size());
+        }
+
+        long count = current.get(0L);
+        return new Result(count, count >= limit, System.nanoTime() - startTime, maxStates, false);
+    }
+
+    // moves all the states of current over the hex v into next
+    private void sweep(int v, long limit) {
+        int[] prev = frontiers[v];
+        int slots = prev.length + 1;
+        System.arraycopy(prev, 0, slotCell, 0, prev.length);
+        slotCell[prev.length] = v;
+
+        int[] neighborSlot = backwardSlot[v];
+        int edges = neighborSlot.length;
+        int vSlot = prev.length;
+
+        long[] keys = current.keys;
+        long[] counts = current.counts;
+        for (int k = 0; k < keys.length; k++) {
+            if (counts[k] == 0) continue;
+            decode(keys[k], prev.length);
+            base[vSlot] = EMPTY;
+
+            // every subset of the edges from v to the neighbors
+            for (int subset = 0; subset < (1 << edges); subset++) {
+                System.arraycopy(base, 0, work, 0, slots);
+                boolean valid = true;
+                for (int i = 0; i < edges && valid; i++) {
+                    if ((subset & (1 << i)) != 0) {
+                        valid = join(neighborSlot[i], vSlot);
+                    }
+                }
+                if (valid) {
+                    long key = leave(v, slots);
+                    if (key >= 0) next.add(key, counts[k], limit);
+                }
+            }
+        }
+    }
+
+    private void decode(long key, int slots) {
+        for (int i = 0; i < slots; i++) {
+            base[i] = (int) ((key >>> (i * bits)) & mask);
+        }
+    }
+
+    // the other end of the piece at the slot, TERMINAL if a start or end point
+    private int farEnd(int slot) {
+        int state = work[slot];
+        if (state == EMPTY) return terminalColor[slotCell[slot]] >= 0 ? TERMINAL : slot;
+        if (state >= mateBase) return state - mateBase;
+        return TERMINAL;
+    }
+
+    // color of the piece at the slot, -1 if none
+    private int pieceColor(int slot) {
+        int state = work[slot];
+        if (state == EMPTY) return terminalColor[slotCell[slot]];
+        if (state >= mateBase) return -1;
+        return state - COLORED;
+    }
+
+    // adds the edge between the slots, false if not allowed
+    private boolean join(int a, int b) {
+        if (work[a] == SAT || work[b] == SAT) return false;
+
+        int fa = farEnd(a);
+        int fb = farEnd(b);
+        // closes a loop
+        if (fa == b) return false;
+        int ca = pieceColor(a);
+        int cb = pieceColor(b);
+        if (ca >= 0 && cb >= 0 && ca != cb) return false;
+        int c = ca >= 0 ? ca : cb;
+
+        // a hex with no edge becomes an end of the piece and is updated below
+        work[a] = SAT;
+        work[b] = SAT;
+        if (fa != TERMINAL) work[fa] = fb == TERMINAL ? COLORED + c : mateBase + fb;
+        if (fb != TERMINAL) work[fb] = fa == TERMINAL ? COLORED + c : mateBase + fa;
+        return true;
+    }
+
+    // drops the hexes leaving the frontier and encodes the rest, -1 if invalid
+    private long leave(int v, int slots) {
+        boolean[] leaves = leaving[v];
+        int count = 0;
+        for (int i = 0; i < slots; i++) {
+            if (leaves[i]) {
+                if (work[i] != SAT) return -1;
+            } else {
+                renumber[i] = count++;
+            }
+        }
+        long key = 0;
+        int shift = 0;
+        int[] left = remaining[v];
+        for (int i = 0; i < slots; i++) {
+            if (leaves[i]) continue;
+            int state = work[i];
+            if (state == EMPTY) {
+                if (left[renumber[i]] < (terminalColor[slotCell[i]] >= 0 ? 1 : 2)) return -1;
+            } else if (state != SAT) {
+                if (left[renumber[i]] < 1) return -1;
+            }
+            if (state >= mateBase) state = mateBase + renumber[state - mateBase];
+            key |= ((long) state) << shift;
+            shift += bits;
+        }
+        return key;
+    }
+
+    // open addressing hash map of the frontier states and their counts
+    private static class LongCountMap {
+        private long[] keys = new long[1024];
+        private long[] counts = new long[1024];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+
+        long get(long key) {
+            int i = indexOf(key, keys);
+            return counts[i];
+        }
+
+        // adds the count, saturated at the limit
+        void add(long key, long count, long limit) {
+            int i = indexOf(key, keys);
+            if (counts[i] == 0) {
+                keys[i] = key;
+                size++;
+            }
+            counts[i] = Math.min(limit, counts[i] + count);
+            if (size * 2 > keys.length) grow();
+        }
+
+        private int indexOf(long key, long[] table) {
+            int m = table.length - 1;
+            int i = (int) (mix(key) & m);
+            while (counts[i] != 0 && table[i] != key) {
+                i = (i + 1) & m;
+            }
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] == 0) continue;
+                int j = indexOf(oldKeys[i], keys);
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+            }
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
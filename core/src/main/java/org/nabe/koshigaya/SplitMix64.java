@@ -0,0 +1,89 @@
+package org.nabe.koshigaya;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// random numbers of SplitMix64, the algorithm of java.util.SplittableRandom
+// which needs API 24 while minSdk is 21
+//
+// the state is a seed and an odd gamma added to it for every number, so it is
+// cheap, reproducible from the seed and not shared between threads. split()
+// makes an independent generator for another thread. it extends Random to be
+// passed wherever a Random is taken, but nothing of it is thread safe
+public class SplitMix64 extends Random {
+
+    // Random is Serializable
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // seeds of the generators made without a seed
+    private static final AtomicLong defaultSeeds =
+            new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long seed;
+    private long gamma;
+
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    // seeded differently every time
+    public SplitMix64() {
+        this(defaultSeeds.getAndAdd(2 * GOLDEN_GAMMA));
+    }
+
+    private SplitMix64(long seed, long gamma) {
+        super(0);
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    // a new generator whose numbers do not overlap with this one
+    public SplitMix64 split() {
+        long s = nextLong();
+        return new SplitMix64(s, mixGamma(nextSeed()));
+    }
+
+    // starts over from the seed, the same numbers as new SplitMix64(seed)
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    // the finalizer of MurmurHash3 variant 13, also good for hashing a long
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // an odd gamma with enough bit transitions
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,225 @@
+package org.nabe.koshigaya;
+
+import java.util.Random;
+
+// the 12 symmetries of the hexagon map, 6 rotations of the map with and
+// without a reflection, and the canonical form of a puzzle under them
+//
+// a puzzle is the same puzzle after a symmetry of the map, after the colors
+// are renamed and after the start and end point of a color are swapped. so
+// the canonical form takes the end points of each color as a pair of the
+// smaller and the larger index, sorts the pairs, and takes the smallest of
+// the sorted pairs of the 12 symmetries. a key packs the canonical pairs in
+// 128 bits, 8 bits for a hex (217 hexes of radius 8) and 16 bits for a pair
+// of up to 8 colors, so puzzles of the same map are deduped by the keys in a
+// hash set without comparing the puzzles
+//
+// shuffle() goes the other way, from the canonical form to a random one of
+// the same puzzle, so the puzzles stored in their canonical forms are not
+// all served in the same orientation with the same colors at the same places
+//
+// the transforms map the hex indexes by arrays made once, and the working
+// arrays are reused, so not thread safe
+public class Symmetry {
+
+    // reflection times 6 plus the rotations to the right, 0 is the identity
+    public static final int TRANSFORMS = 12;
+    public static final int IDENTITY = 0;
+    // most colors of a key
+    public static final int MAX_COLORS = 8;
+
+    // canonical pairs of the end points of a puzzle
+    public static final class Key {
+        private final long high;
+        private final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key key = (Key) obj;
+            return high == key.high && low == key.low;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = high * 0x9E3779B97F4A7C15L + low;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", high, low);
+        }
+    }
+
+    private final HexGrid grid;
+    // maps[t][i] is the index of hex i transformed by t
+    private final int[][] maps;
+    // pairs of the end points as (smaller index << 8) | larger index
+    private final int[] pairs = new int[MAX_COLORS];
+    private final int[] best = new int[MAX_COLORS];
+    private final int[] identity = new int[MAX_COLORS];
+
+    public Symmetry(HexGrid grid) {
+        this.grid = grid;
+        maps = new int[TRANSFORMS][grid.size()];
+        for (int t = 0; t < TRANSFORMS; t++) {
+            for (int i = 0; i < grid.size(); i++) {
+                Hex h = grid.hex(i);
+                if (t >= 6) h = h.reflect();
+                for (int k = 0; k < t % 6; k++) {
+                    h = h.rotateRight();
+                }
+                maps[t][i] = grid.indexOf(h);
+            }
+        }
+    }
+
+    public HexGrid getGrid() {
+        return grid;
+    }
+
+    // index of the hex transformed by t
+    public int apply(int t, int index) {
+        return maps[t][index];
+    }
+
+    // the transform making the canonical form of the end points
+    public int canonicalTransform(int[][] endpoints) {
+        checkColors(endpoints);
+        int n = endpoints.length;
+        int bestTransform = IDENTITY;
+        sortedPairs(IDENTITY, endpoints, best);
+        for (int t = 1; t < TRANSFORMS; t++) {
+            sortedPairs(t, endpoints, pairs);
+            if (compare(pairs, best, n) < 0) {
+                System.arraycopy(pairs, 0, best, 0, n);
+                bestTransform = t;
+            }
+        }
+        return bestTransform;
+    }
+
+    // the same key for the puzzles the same under the symmetries
+    public Key key(int[][] endpoints) {
+        // best has the canonical pairs then
+        canonicalTransform(endpoints);
+        long high = 0;
+        long low = 0;
+        for (int c = 0; c < endpoints.length; c++) {
+            if (c < 4) {
+                high |= (long) best[c] << (48 - 16 * c);
+            } else {
+                low |= (long) best[c] << (48 - 16 * (c - 4));
+            }
+        }
+        return new Key(high, low);
+    }
+
+    // the puzzle in its canonical form, the colors in the order of the pairs
+    // and the start point of each color the smaller index. the solution is
+    // transformed with it if known
+    public Puzzle canonical(Puzzle puzzle) {
+        int t = canonicalTransform(puzzle.endpoints);
+        int[] map = maps[t];
+        int n = puzzle.getColorCount();
+        sortedPairs(t, puzzle.endpoints, pairs);
+        int[][] endpoints = new int[n][2];
+        int[][] paths = puzzle.paths == null ? null : new int[n][];
+        for (int c = 0; c < n; c++) {
+            int start = map[puzzle.endpoints[c][0]];
+            int end = map[puzzle.endpoints[c][1]];
+            boolean reversed = start > end;
+            // the place of the pair, the pairs are distinct as the hexes are
+            int packed = reversed ? (end << 8) | start : (start << 8) | end;
+            int to = 0;
+            while (pairs[to] != packed) to++;
+            endpoints[to][0] = Math.min(start, end);
+            endpoints[to][1] = Math.max(start, end);
+            if (paths == null) continue;
+            int[] path = puzzle.paths[c];
+            paths[to] = new int[path.length];
+            for (int i = 0; i < path.length; i++) {
+                paths[to][reversed ? path.length - 1 - i : i] = map[path[i]];
+            }
+        }
+        return new Puzzle(puzzle.radius, endpoints, paths);
+    }
+
+    // the puzzle by a random transform, the colors in a random order and the
+    // start and end point of each color swapped at random. the solution is
+    // transformed with it if known
+    public Puzzle shuffle(Puzzle puzzle, Random random) {
+        int[] map = maps[random.nextInt(TRANSFORMS)];
+        int n = puzzle.getColorCount();
+        int[] order = new int[n];
+        for (int c = 0; c < n; c++) {
+            int j = random.nextInt(c + 1);
+            order[c] = order[j];
+            order[j] = c;
+        }
+        int[][] endpoints = new int[n][2];
+        int[][] paths = puzzle.paths == null ? null : new int[n][];
+        for (int c = 0; c < n; c++) {
+            int to = order[c];
+            boolean reversed = random.nextBoolean();
+            endpoints[to][0] = map[puzzle.endpoints[c][reversed ? 1 : 0]];
+            endpoints[to][1] = map[puzzle.endpoints[c][reversed ? 0 : 1]];
+            if (paths == null) continue;
+            int[] path = puzzle.paths[c];
+            paths[to] = new int[path.length];
+            for (int i = 0; i < path.length; i++) {
+                paths[to][reversed ? path.length - 1 - i : i] = map[path[i]];
+            }
+        }
+        return new Puzzle(puzzle.radius, endpoints, paths);
+    }
+
+    // bits of the transforms other than the identity mapping the end points
+    // to themselves, the colors may be renamed, 0 for most puzzles
+    public int stabilizers(int[][] endpoints) {
+        checkColors(endpoints);
+        int n = endpoints.length;
+        sortedPairs(IDENTITY, endpoints, identity);
+        int mask = 0;
+        for (int t = 1; t < TRANSFORMS; t++) {
+            sortedPairs(t, endpoints, pairs);
+            if (compare(pairs, identity, n) == 0) mask |= 1 << t;
+        }
+        return mask;
+    }
+
+    private void sortedPairs(int t, int[][] endpoints, int[] out) {
+        int[] map = maps[t];
+        for (int c = 0; c < endpoints.length; c++) {
+            int a = map[endpoints[c][0]];
+            int b = map[endpoints[c][1]];
+            int pair = a < b ? (a << 8) | b : (b << 8) | a;
+            // insertion sort, a few colors
+            int i = c;
+            while (i > 0 && out[i - 1] > pair) {
+                out[i] = out[i - 1];
+                i--;
+            }
+            out[i] = pair;
+        }
+    }
+
+    private static int compare(int[] a, int[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            if (a[i] != b[i]) return a[i] < b[i] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private static void checkColors(int[][] endpoints) {
+        if (endpoints.length > MAX_COLORS) {
+            throw new IllegalArgumentException(endpoints.length + " colors, at most " + MAX_COLORS);
+        }
+    }
+}
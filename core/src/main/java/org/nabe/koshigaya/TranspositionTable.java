@@ -0,0 +1,176 @@
+package org.nabe.koshigaya;
+
+// search states known to have no solution in a table of a fixed size, see
+// PathSolver
+//
+// a state is the free hexes, the heads of all the colors and the color of
+// each head, 3 bits each in the order of the heads, so at most MAX_COLORS
+// colors. a 64 bit hash of the state picks the bucket, but the whole state
+// is kept and compared, so a state found is exactly the state stored and the
+// search using the table stays exact. a state has a head at least, so an
+// entry without heads is empty
+//
+// the entries are in buckets of two. the first entry of a bucket keeps the
+// state which took the most search nodes to fail, the second the state
+// stored last, so the costly states stay and the recent ones have a place
+// too. a new state takes the first entry if that is of an older search or
+// took no more nodes, which moves the first entry to the second, and takes
+// the second entry otherwise
+//
+// the arrays are made by the constructor and nothing is allocated later.
+// not thread safe
+public class TranspositionTable {
+
+    public static final int MIN_BITS = 1;
+    public static final int MAX_BITS = 24;
+    // colors of the heads packed in a long
+    public static final int MAX_COLORS = 8;
+
+    // state of each entry
+    private final long[] frees;
+    private final long[] heads;
+    private final long[] headColors;
+    // search nodes taken to fail below the state of each entry
+    private final int[] work;
+    // search the entry is stored in, see newSearch()
+    private final int[] searches;
+    private final int bucketMask;
+    private int search = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long stores = 0;
+    private long overwrites = 0;
+
+    // 2^bits entries, 32 bytes each
+    public TranspositionTable(int bits) {
+        if (bits < MIN_BITS || bits > MAX_BITS) {
+            throw new IllegalArgumentException("bits " + bits + " out of " + MIN_BITS + " to " + MAX_BITS);
+        }
+        frees = new long[1 << bits];
+        heads = new long[1 << bits];
+        headColors = new long[1 << bits];
+        work = new int[1 << bits];
+        searches = new int[1 << bits];
+        bucketMask = (1 << (bits - 1)) - 1;
+    }
+
+    // the entries stored from now on are of a new search, and the entries
+    // stored before give way to them
+    public void newSearch() {
+        search++;
+    }
+
+    // the colors of the heads of the colors, 3 bits for each head in the
+    // order of the heads in all the heads
+    public static long headColors(long[] colorHeads, int colorCount) {
+        if (colorCount > MAX_COLORS) {
+            throw new IllegalArgumentException(colorCount + " colors, at most " + MAX_COLORS);
+        }
+        long all = 0;
+        for (int c = 0; c < colorCount; c++) {
+            all |= colorHeads[c];
+        }
+        long packed = 0;
+        for (int c = 0; c < colorCount; c++) {
+            for (long h = colorHeads[c]; h != 0; h &= h - 1) {
+                int rank = Long.bitCount(all & ((h & -h) - 1));
+                packed |= (long) c << (3 * rank);
+            }
+        }
+        return packed;
+    }
+
+    // true if the state is stored, hash is that of the state
+    public boolean contains(long hash, long free, long allHeads, long colors) {
+        if (allHeads == 0) throw new IllegalArgumentException("state without heads");
+        int i = ((int) hash & bucketMask) << 1;
+        if (matches(i, free, allHeads, colors) || matches(i + 1, free, allHeads, colors)) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    // stores the state which failed after the search nodes
+    public void put(long hash, long free, long allHeads, long colors, long nodes) {
+        if (allHeads == 0) throw new IllegalArgumentException("state without heads");
+        int w = (int) Math.min(nodes, Integer.MAX_VALUE);
+        int i = ((int) hash & bucketMask) << 1;
+        if (matches(i, free, allHeads, colors) || matches(i + 1, free, allHeads, colors)) {
+            int j = matches(i, free, allHeads, colors) ? i : i + 1;
+            work[j] = Math.max(work[j], w);
+            searches[j] = search;
+            return;
+        }
+        stores++;
+        if (heads[i] != 0 && searches[i] == search && w < work[i]) {
+            // the costlier first entry stays
+            i++;
+            if (heads[i] != 0) overwrites++;
+        } else if (heads[i] != 0) {
+            // the first entry moves to the second
+            if (heads[i + 1] != 0) overwrites++;
+            frees[i + 1] = frees[i];
+            heads[i + 1] = heads[i];
+            headColors[i + 1] = headColors[i];
+            work[i + 1] = work[i];
+            searches[i + 1] = searches[i];
+        }
+        frees[i] = free;
+        heads[i] = allHeads;
+        headColors[i] = colors;
+        work[i] = w;
+        searches[i] = search;
+    }
+
+    private boolean matches(int i, long free, long allHeads, long colors) {
+        return frees[i] == free && heads[i] == allHeads && headColors[i] == colors;
+    }
+
+    // empties the table, the counts are kept
+    public void clear() {
+        for (int i = 0; i < heads.length; i++) {
+            frees[i] = 0;
+            heads[i] = 0;
+            headColors[i] = 0;
+            work[i] = 0;
+            searches[i] = 0;
+        }
+    }
+
+    public int capacity() {
+        return heads.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    // stored entries which pushed out another one
+    public long getOverwrites() {
+        return overwrites;
+    }
+
+    // hits of all the lookups, 0 if none
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public void clearCounts() {
+        hits = 0;
+        misses = 0;
+        stores = 0;
+        overwrites = 0;
+    }
+}
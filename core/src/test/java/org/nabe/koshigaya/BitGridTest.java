@@ -0,0 +1,62 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitGridTest {
+
+    @Test
+    public void shift_matchesNeighbors() {
+        for (int radius = 1; radius <= BitGrid.MAX_RADIUS; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            BitGrid bits = new BitGrid(grid);
+            for (int i = 0; i < grid.size(); i++) {
+                long expected = 0;
+                for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                    int n = grid.neighbor(i, direction);
+                    long shifted = bits.shift(BitGrid.bit(i), direction);
+                    assertEquals(n == HexGrid.NONE ? 0 : BitGrid.bit(n), shifted);
+                    expected |= shifted;
+                }
+                assertEquals(expected, bits.neighbors(i));
+                assertEquals(expected, bits.expand(BitGrid.bit(i)));
+            }
+        }
+    }
+
+    @Test
+    public void fill_matchesSearch() {
+        HexGrid grid = new HexGrid(BitGrid.MAX_RADIUS);
+        BitGrid bits = new BitGrid(grid);
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            long area = random.nextLong() & bits.all();
+            if (area == 0) continue;
+            int seed = Long.numberOfTrailingZeros(area);
+
+            // depth first search one hex at a time
+            long expected = BitGrid.bit(seed);
+            int[] stack = new int[grid.size()];
+            int top = 0;
+            stack[top++] = seed;
+            while (top > 0) {
+                int hex = stack[--top];
+                for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                    int n = grid.neighbor(hex, direction);
+                    if (n == HexGrid.NONE || (area & BitGrid.bit(n)) == 0 || (expected & BitGrid.bit(n)) != 0) continue;
+                    expected |= BitGrid.bit(n);
+                    stack[top++] = n;
+                }
+            }
+            assertEquals(expected, bits.fill(BitGrid.bit(seed), area));
+
+            for (int hex = 0; hex < grid.size(); hex++) {
+                int count = Long.bitCount(bits.neighbors(hex) & area);
+                assertEquals(count >= 2, (bits.atLeastTwo(area) & BitGrid.bit(hex)) != 0);
+            }
+        }
+    }
+}
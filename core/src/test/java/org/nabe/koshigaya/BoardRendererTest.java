@@ -0,0 +1,118 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class BoardRendererTest {
+
+    // counts the drawing operations
+    private static class CountingCanvas implements BoardCanvas {
+        int circles;
+        int pathsSet;
+        int pathsDrawn;
+        int warnings;
+        int lastCount;
+
+        @Override
+        public void drawCircle(float x, float y, float radius, int color) {
+            circles++;
+        }
+
+        @Override
+        public void setPath(int color, float[] x, float[] y, int count) {
+            pathsSet++;
+            lastCount = count;
+        }
+
+        @Override
+        public void drawPath(int color) {
+            pathsDrawn++;
+        }
+
+        @Override
+        public void drawWarning(float x, float y, float radius) {
+            warnings++;
+        }
+    }
+
+    @Test
+    public void paths_areSetOnlyWhenChanged() {
+        GameBoard board = new GameBoard(2);
+        board.generateGame(1);
+        BoardRenderer renderer = new BoardRenderer(board);
+        renderer.layout(500);
+        CountingCanvas canvas = new CountingCanvas();
+
+        renderer.draw(canvas);
+        assertEquals(19 + 6, canvas.circles);
+        assertEquals(3, canvas.pathsSet);
+        assertEquals(3, canvas.pathsDrawn);
+
+        renderer.draw(canvas);
+        assertEquals(3, canvas.pathsSet);
+        assertEquals(6, canvas.pathsDrawn);
+
+        board.clearPath(GameBoard.RED, 1);
+        renderer.draw(canvas);
+        assertEquals(4, canvas.pathsSet);
+        assertEquals(1, canvas.lastCount);
+    }
+
+    @Test
+    public void segmentBounds_coverBothHexes() {
+        GameBoard board = new GameBoard(3);
+        BoardRenderer renderer = new BoardRenderer(board);
+        renderer.layout(700);
+        HexGrid grid = board.getGrid();
+        int[] bounds = new int[4];
+        int margin = renderer.getPointRadius() + renderer.getStrokeWidth();
+        for (int a = 0; a < grid.size(); a++) {
+            for (int b : grid.neighbors(a)) {
+                if (b == HexGrid.NONE) continue;
+                renderer.getSegmentBounds(a, b, bounds);
+                for (int hex : new int[]{a, b}) {
+                    assertTrue(bounds[0] <= renderer.getCenterX(hex) - margin);
+                    assertTrue(bounds[1] <= renderer.getCenterY(hex) - margin);
+                    assertTrue(bounds[2] >= renderer.getCenterX(hex) + margin);
+                    assertTrue(bounds[3] >= renderer.getCenterY(hex) + margin);
+                }
+                // a segment is much smaller than the board
+                assertTrue(bounds[2] - bounds[0] < 700 / 2);
+            }
+        }
+    }
+
+    @Test
+    public void frame_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long id = Thread.currentThread().getId();
+
+        GameBoard board = new GameBoard(4);
+        board.generateGame(1);
+        BoardRenderer renderer = new BoardRenderer(board);
+        renderer.layout(1000);
+        CountingCanvas canvas = new CountingCanvas();
+        // the first frame passes the paths
+        for (int i = 0; i < 1000; i++) {
+            renderer.draw(canvas);
+        }
+
+        // the bytes allocated by reading the counter itself
+        long before = threads.getThreadAllocatedBytes(id);
+        long overhead = threads.getThreadAllocatedBytes(id) - before;
+
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 1000; i++) {
+            renderer.draw(canvas);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,60 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CellPathTest {
+
+    @Test
+    public void path_matchesList() {
+        Random random = new Random(1);
+        int cellCount = 37;
+        CellPath path = new CellPath(cellCount);
+        List<Integer> expected = new ArrayList<>();
+        for (int n = 0; n < 10000; n++) {
+            if (random.nextInt(8) == 0) {
+                int length = random.nextInt(expected.size() + 1);
+                path.truncate(length);
+                expected.subList(length, expected.size()).clear();
+            } else {
+                int cell = random.nextInt(cellCount);
+                assertEquals(!expected.contains(cell), path.add(cell));
+                if (!expected.contains(cell)) expected.add(cell);
+            }
+
+            assertEquals(expected.size(), path.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals((int) expected.get(i), path.get(i));
+            }
+            for (int cell = 0; cell < cellCount; cell++) {
+                assertEquals(expected.indexOf(cell), path.indexOf(cell));
+            }
+            assertEquals(expected.isEmpty() ? HexGrid.NONE : expected.get(0), path.first());
+            assertEquals(expected.isEmpty() ? HexGrid.NONE : expected.get(expected.size() - 1), path.last());
+        }
+    }
+
+    @Test
+    public void cutPathAfter_graysTheRest() {
+        GameBoard board = new GameBoard(3);
+        board.generateGame(1);
+        CellPath path = board.getPath(GameBoard.YELLOW);
+        int cut = path.get(1);
+        int removed = path.get(2);
+
+        assertTrue(board.cutPathAfter(GameBoard.YELLOW, cut));
+        assertEquals(2, path.size());
+        assertEquals(cut, path.last());
+        assertEquals(GameBoard.YELLOW, board.getColor(cut));
+        if (removed != board.getAnswerPoint(GameBoard.YELLOW, 1)) {
+            assertEquals(GameBoard.GRAY, board.getColor(removed));
+        }
+        assertFalse(board.isPathConnected(GameBoard.YELLOW));
+        assertFalse(board.cutPathAfter(GameBoard.YELLOW, removed));
+    }
+}
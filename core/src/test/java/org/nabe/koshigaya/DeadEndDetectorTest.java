@@ -0,0 +1,125 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeadEndDetectorTest {
+
+    @Test
+    public void deadEnd_hasNoSolution() {
+        Random random = new Random(1);
+        GameBoard board = new GameBoard(3);
+        HexGrid grid = board.getGrid();
+        DeadEndDetector detector = new DeadEndDetector(board);
+        PathSolver solver = new PathSolver(grid);
+        int deadEnds = 0;
+        for (int game = 0; game < 100; game++) {
+            board.generateGame(game);
+            board.resetGame();
+            assertFalse(detector.update());
+
+            // random walks of the colors as the touches draw them
+            for (int n = 0; n < 20; n++) {
+                int c = random.nextInt(board.getColorCount());
+                if (board.isPathConnected(c)) continue;
+                CellPath path = board.getPath(c);
+                if (path.isEmpty()) board.addToPath(c, board.getAnswerPoint(c, random.nextInt(2)));
+                int next = grid.neighbor(path.last(), random.nextInt(HexGrid.DIRECTIONS));
+                if (next == HexGrid.NONE) continue;
+                if (board.getColor(next) == GameBoard.GRAY) {
+                    board.setColor(next, c);
+                    board.addToPath(c, next);
+                } else if (next == detector.getEnd(c)) {
+                    board.addToPath(c, next);
+                }
+
+                boolean deadEnd = detector.update();
+                assertEquals(deadEnd, detector.getIsolatedCount() > 0 || detector.getCutCount() > 0);
+                if (!deadEnd) continue;
+                deadEnds++;
+                PathSolver.Result result = solver.solve(endpoints(board), prefixes(board), null, null, 0);
+                assertFalse(result.solved);
+                break;
+            }
+        }
+        assertTrue(deadEnds > 20);
+    }
+
+    @Test
+    public void surroundedStart_isCut() {
+        GameBoard board = new GameBoard(2);
+        board.generateGame(1);
+        DeadEndDetector detector = new DeadEndDetector(board);
+        // the solution is no dead end
+        assertFalse(detector.update());
+
+        // the gray hexes around the start point of yellow taken by red
+        board.resetGame();
+        HexGrid grid = board.getGrid();
+        int start = board.getAnswerPoint(GameBoard.YELLOW, 0);
+        for (int n : grid.neighbors(start)) {
+            if (n != HexGrid.NONE && board.getColor(n) == GameBoard.GRAY) board.setColor(n, GameBoard.RED);
+        }
+        detector.update();
+        assertEquals(start, detector.getHead(GameBoard.YELLOW));
+        assertEquals(board.getAnswerPoint(GameBoard.YELLOW, 1), detector.getEnd(GameBoard.YELLOW));
+        boolean endNextToStart = grid.isNeighbor(start, board.getAnswerPoint(GameBoard.YELLOW, 1));
+        assertEquals(!endNextToStart, detector.isCut(GameBoard.YELLOW));
+        assertEquals(!endNextToStart, detector.isDeadEnd());
+    }
+
+    @Test
+    public void update_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long id = Thread.currentThread().getId();
+
+        GameBoard board = new GameBoard(6);
+        board.generateGame(1);
+        board.clearPath(GameBoard.YELLOW, 3);
+        DeadEndDetector detector = new DeadEndDetector(board);
+        int count = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (detector.update()) count++;
+        }
+
+        long before = threads.getThreadAllocatedBytes(id);
+        long overhead = threads.getThreadAllocatedBytes(id) - before;
+
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 10000; i++) {
+            if (detector.update()) count++;
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+        assertEquals(0, allocated);
+        assertEquals(0, count);
+    }
+
+    private static int[][] endpoints(GameBoard board) {
+        int[][] endpoints = new int[board.getColorCount()][2];
+        for (int c = 0; c < endpoints.length; c++) {
+            endpoints[c][0] = board.getAnswerPoint(c, 0);
+            endpoints[c][1] = board.getAnswerPoint(c, 1);
+        }
+        return endpoints;
+    }
+
+    private static int[][] prefixes(GameBoard board) {
+        int[][] prefixes = new int[board.getColorCount()][];
+        for (int c = 0; c < prefixes.length; c++) {
+            CellPath path = board.getPath(c);
+            prefixes[c] = new int[path.size()];
+            for (int i = 0; i < path.size(); i++) {
+                prefixes[c][i] = path.get(i);
+            }
+        }
+        return prefixes;
+    }
+}
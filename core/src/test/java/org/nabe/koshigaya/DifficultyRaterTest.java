@@ -0,0 +1,140 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DifficultyRaterTest {
+
+    @Test
+    public void rating_countsEveryMove() {
+        double previous = -1;
+        for (int radius = 2; radius <= 4; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(radius));
+            DifficultyRater rater = new DifficultyRater(grid);
+            long scores = 0;
+            for (int i = 0; i < 200; i++) {
+                Puzzle puzzle = generator.generate(3);
+                DifficultyRater.Rating rating = rater.rate(puzzle);
+                assertEquals(grid.size() - 3, rating.moves);
+                assertEquals(rating.moves, rating.forcedMoves + rating.guesses);
+                assertTrue(rating.guesses == 0 || rating.getBranchingFactor() >= 2);
+                assertTrue(rating.score >= 0 && rating.score <= 100);
+                assertEquals(rater.bandOf(rating.score, 3), rating.getBand());
+                // the same puzzle is rated the same
+                assertEquals(rating.score, rater.rate(puzzle).score);
+                scores += rating.score;
+            }
+            // larger maps are harder
+            double mean = scores / 200.0;
+            assertTrue(mean > previous);
+            previous = mean;
+        }
+    }
+
+    @Test
+    public void rating_takesMuchLessThanMillisecond() {
+        HexGrid grid = new HexGrid(4);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(1));
+        DifficultyRater rater = new DifficultyRater(grid);
+        Puzzle[] puzzles = new Puzzle[500];
+        for (int i = 0; i < puzzles.length; i++) {
+            puzzles[i] = generator.generate(GameBoard.DEFAULT_COLORS);
+            rater.rate(puzzles[i]);
+        }
+        long startTime = System.nanoTime();
+        for (Puzzle puzzle : puzzles) {
+            rater.rate(puzzle);
+        }
+        long nanos = (System.nanoTime() - startTime) / puzzles.length;
+        assertTrue("rating took " + nanos + "ns", nanos < 500000);
+    }
+
+    @Test
+    public void bands_splitThePuzzles() {
+        for (int radius = 2; radius <= 5; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(radius));
+            DifficultyRater rater = new DifficultyRater(grid);
+            for (int colorCount = 3; colorCount <= 6; colorCount += 3) {
+                if (radius == 2 && colorCount == 6) continue;
+                int[] counts = new int[DifficultyRater.BANDS];
+                for (int i = 0; i < 400; i++) {
+                    counts[rater.rate(generator.generate(colorCount)).getBand()]++;
+                }
+                // about a quarter each, the scores are whole numbers so the
+                // quartiles are not exact
+                for (int band = 0; band < DifficultyRater.BANDS; band++) {
+                    assertTrue("radius " + radius + " colors " + colorCount + " band " + band
+                            + " has " + counts[band], counts[band] >= 40 && counts[band] <= 180);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void singleScore_isEasy() {
+        // the 6 paths on radius 2 are almost always found by the deductions,
+        // score 0, so the quartiles are all 0
+        HexGrid grid = new HexGrid(2);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(1));
+        DifficultyRater rater = new DifficultyRater(grid);
+        assertEquals(DifficultyRater.EASY, rater.bandOf(0, 6));
+        assertEquals(DifficultyRater.NORMAL, rater.bandOf(1, 6));
+        int easy = 0;
+        for (int i = 0; i < 200; i++) {
+            if (rater.rate(generator.generate(6)).getBand() == DifficultyRater.EASY) easy++;
+        }
+        assertTrue(easy >= 150);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyColors_areRejected() {
+        HexGrid grid = new HexGrid(2);
+        new DifficultyRater(grid).bandOf(0, PuzzleGenerator.maxColorCount(grid) + 1);
+    }
+
+    @Test
+    public void band_isRequested() throws IOException {
+        for (int radius = 3; radius <= 4; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(1));
+            DifficultyRater rater = new DifficultyRater(grid);
+            for (int band = DifficultyRater.EASY; band <= DifficultyRater.EXPERT; band++) {
+                Puzzle puzzle = generator.generateRated(3, band, 50);
+                assertNotNull(puzzle);
+                assertEquals(band, rater.rate(puzzle).getBand());
+                assertEquals(band, generator.getLastRating().getBand());
+            }
+        }
+
+        HexGrid grid = new HexGrid(3);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(1));
+        DifficultyRater rater = new DifficultyRater(grid);
+
+        List<Puzzle[]> sections = new ArrayList<>();
+        Puzzle[] puzzles = new Puzzle[50];
+        for (int i = 0; i < puzzles.length; i++) {
+            puzzles[i] = generator.generate(3);
+        }
+        sections.add(puzzles);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleBank.write(out, sections);
+        PuzzleBank bank = new PuzzleBank(ByteBuffer.wrap(out.toByteArray()));
+        Random random = new Random(1);
+        for (int band = DifficultyRater.EASY; band <= DifficultyRater.EXPERT; band++) {
+            Puzzle puzzle = bank.random(3, 3, band, rater, random, 100);
+            assertNotNull(puzzle);
+            assertEquals(band, rater.rate(puzzle).getBand());
+        }
+        assertNull(bank.random(4, 3, DifficultyRater.HARD, rater, random, 100));
+    }
+}
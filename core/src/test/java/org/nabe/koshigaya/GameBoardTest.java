@@ -0,0 +1,168 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GameBoardTest {
+
+    @Test
+    public void counters_matchTheBoard() {
+        Random random = new Random(1);
+        GameBoard board = new GameBoard(3);
+        HexGrid grid = board.getGrid();
+        for (int game = 0; game < 20; game++) {
+            board.generateGame(game);
+            assertCounters(board);
+            assertTrue(board.isGameEnd());
+
+            // cuts and grows the paths at random as the touches do
+            for (int n = 0; n < 200; n++) {
+                int c = random.nextInt(board.getColorCount());
+                CellPath path = board.getPath(c);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        board.clearPath(c, random.nextInt(path.size() + 1));
+                        break;
+                    case 1:
+                        if (!path.isEmpty()) board.cutPathAfter(c, path.get(random.nextInt(path.size())));
+                        break;
+                    default:
+                        if (path.isEmpty()) {
+                            board.addToPath(c, board.getAnswerPoint(c, 0));
+                            break;
+                        }
+                        int next = grid.neighbor(path.last(), random.nextInt(HexGrid.DIRECTIONS));
+                        if (next == HexGrid.NONE || board.isPathConnected(c)) break;
+                        if (board.getColor(next) == GameBoard.GRAY) {
+                            board.setColor(next, c);
+                            board.addToPath(c, next);
+                        } else if (board.getColor(next) == c) {
+                            board.addToPath(c, next);
+                        }
+                        break;
+                }
+                assertCounters(board);
+            }
+
+            board.resetGame();
+            assertCounters(board);
+            assertFalse(board.isGameEnd());
+        }
+    }
+
+    @Test
+    public void everyRadiusAndColorCount_isPlayable() {
+        for (int radius = GameBoard.MIN_RADIUS; radius <= GameBoard.MAX_RADIUS; radius++) {
+            for (int colors = GameBoard.MIN_COLORS; colors <= GameBoard.MAX_COLORS; colors++) {
+                if (colors > PuzzleGenerator.maxColorCount(new HexGrid(radius))) continue;
+                GameBoard board = new GameBoard(radius, colors);
+                for (int seed = 0; seed < 5; seed++) {
+                    board.generateGame(seed);
+                    assertEquals(colors, board.getColorCount());
+                    assertTrue(board.isGameEnd());
+                    assertCounters(board);
+                }
+                board.resetGame();
+                assertEquals(board.getGrid().size() - 2 * colors, board.getGrayCount());
+            }
+        }
+    }
+
+    @Test
+    public void addToPath_sameHex_keepsTheVersion() {
+        GameBoard board = new GameBoard(3);
+        board.generateGame(1);
+        board.resetGame();
+        int start = board.getAnswerPoint(GameBoard.YELLOW, 0);
+        assertTrue(board.addToPath(GameBoard.YELLOW, start));
+        int version = board.getPathVersion(GameBoard.YELLOW);
+        int filled = board.getFilledCount();
+        assertFalse(board.addToPath(GameBoard.YELLOW, start));
+        assertEquals(version, board.getPathVersion(GameBoard.YELLOW));
+        assertEquals(filled, board.getFilledCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyColors_areRejected() {
+        new GameBoard(2, GameBoard.MAX_COLORS);
+    }
+
+    @Test
+    public void searches_findTheSamePaths() {
+        Random random = new Random(1);
+        int[] searches = {GameBoard.SEARCH_BFS, GameBoard.SEARCH_ASTAR, GameBoard.SEARCH_BIDIRECTIONAL};
+        long[] expanded = new long[searches.length];
+        int found = 0;
+        for (int radius = 2; radius <= 8; radius += 2) {
+            GameBoard board = new GameBoard(radius);
+            HexGrid grid = board.getGrid();
+            for (int n = 0; n < 300; n++) {
+                // the other colors block a part of the map
+                board.placeAnswerPoints();
+                for (int i = 0; i < grid.size(); i++) {
+                    if (board.getColor(i) == GameBoard.GRAY && random.nextInt(100) < 35) {
+                        board.setColor(i, GameBoard.RED);
+                    }
+                }
+                int start = board.getAnswerPoint(GameBoard.YELLOW, 0);
+                int end = board.getAnswerPoint(GameBoard.YELLOW, 1);
+
+                int length = -1;
+                for (int s = 0; s < searches.length; s++) {
+                    boolean result = board.findPathBy(searches[s], GameBoard.YELLOW, start, end);
+                    expanded[s] += board.getExpanded();
+                    if (s == 0) {
+                        if (result) found++;
+                        length = result ? board.getPath(GameBoard.YELLOW).size() : -1;
+                    } else {
+                        assertEquals(length >= 0, result);
+                    }
+                    if (!result) continue;
+
+                    CellPath path = board.getPath(GameBoard.YELLOW);
+                    assertEquals(end, path.first());
+                    assertEquals(start, path.last());
+                    for (int i = 1; i < path.size(); i++) {
+                        assertTrue(grid.isNeighbor(path.get(i - 1), path.get(i)));
+                        assertEquals(GameBoard.YELLOW, board.getColor(path.get(i)));
+                    }
+                    // A* is as short as breadth first
+                    if (searches[s] == GameBoard.SEARCH_ASTAR) assertEquals(length, path.size());
+                    board.clearPath(GameBoard.YELLOW, 0);
+                }
+            }
+        }
+        assertTrue(found > 100);
+        assertTrue(expanded[1] < expanded[0]);
+        assertTrue(expanded[2] < expanded[0]);
+    }
+
+    // the counters are the same as counted on the whole board
+    private static void assertCounters(GameBoard board) {
+        HexGrid grid = board.getGrid();
+        int gray = 0;
+        for (int i = 0; i < grid.size(); i++) {
+            if (board.getColor(i) == GameBoard.GRAY) gray++;
+        }
+        assertEquals(gray, board.getGrayCount());
+
+        int filled = 0;
+        int connected = 0;
+        for (int c = 0; c < board.getColorCount(); c++) {
+            CellPath path = board.getPath(c);
+            filled += path.size();
+            int a = board.getAnswerPoint(c, 0);
+            int b = board.getAnswerPoint(c, 1);
+            boolean expected = path.size() >= 2
+                    && ((path.first() == a && path.last() == b) || (path.first() == b && path.last() == a));
+            assertEquals(expected, board.isPathConnected(c));
+            if (expected) connected++;
+        }
+        assertEquals(filled, board.getFilledCount());
+        assertEquals(connected, board.getConnectedCount());
+        assertEquals(connected == board.getColorCount() && filled == grid.size(), board.isGameEnd());
+    }
+}
@@ -0,0 +1,80 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HexGridTest {
+
+    @Test
+    public void indexes_matchCoordinates() {
+        for (int radius = 2; radius <= 4; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            assertEquals(3 * radius * (radius + 1) + 1, grid.size());
+            for (int i = 0; i < grid.size(); i++) {
+                Hex h = grid.hex(i);
+                assertEquals(i, grid.indexOf(h));
+                assertEquals(i, grid.indexOf(OffsetCoord.roffsetFromCube(OffsetCoord.ODD, h)));
+            }
+            assertEquals(HexGrid.NONE, grid.indexOf(radius + 1, 0));
+            assertEquals(HexGrid.NONE, grid.indexAt(radius, radius));
+        }
+    }
+
+    @Test
+    public void neighbors_matchHexNeighbors() {
+        HexGrid grid = new HexGrid(3);
+        for (int i = 0; i < grid.size(); i++) {
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int n = grid.neighbor(i, direction);
+                Hex expected = grid.hex(i).neighbor(direction);
+                if (n == HexGrid.NONE) {
+                    assertTrue(expected.length() > grid.getRadius());
+                } else {
+                    assertEquals(expected, grid.hex(n));
+                    assertTrue(grid.isNeighbor(n, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hexes_areCanonical() {
+        HexGrid grid = new HexGrid(4);
+        for (int i = 0; i < grid.size(); i++) {
+            Hex h = grid.hex(i);
+            assertSame(h, grid.canonical(new Hex(h.q, h.r, h.s)));
+            assertSame(h, grid.hexOf(h.q, h.r));
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int n = grid.neighbor(i, direction);
+                assertSame(n == HexGrid.NONE ? null : grid.hex(n), grid.neighbor(h, direction));
+            }
+        }
+        assertNull(grid.hexOf(5, 0));
+    }
+
+    @Test
+    public void hexMath_matchesTheVectors() {
+        Set<Integer> hashes = new HashSet<>();
+        for (int q = -10; q <= 10; q++) {
+            for (int r = -10; r <= 10; r++) {
+                Hex a = new Hex(q, r, -q - r);
+                assertTrue(hashes.add(a.hashCode()));
+                assertTrue(hashes.contains(new Hex(q, r, -q - r).hashCode()));
+                assertEquals(a.subtract(new Hex(0, 0, 0)).length(), a.distance(new Hex(0, 0, 0)));
+                for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                    assertTrue(a.isNeighbor(a.neighbor(direction)));
+                    assertTrue(a.isDiagonalNeighbor(a.diagonalNeighbor(direction)));
+                    assertFalse(a.isNeighbor(a.diagonalNeighbor(direction)));
+                    assertFalse(a.isDiagonalNeighbor(a.neighbor(direction).neighbor(direction)));
+                    assertEquals(2, a.distance(a.neighbor(direction).neighbor(direction)));
+                }
+                assertFalse(a.isNeighbor(a));
+            }
+        }
+        assertNotEquals(new OffsetCoord(1, 2).hashCode(), new OffsetCoord(2, 1).hashCode());
+    }
+}
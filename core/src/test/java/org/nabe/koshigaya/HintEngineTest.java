@@ -0,0 +1,167 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class HintEngineTest {
+
+    @Test
+    public void hints_leadToTheSolution() {
+        GameBoard board = new GameBoard(4);
+        HintEngine engine = new HintEngine(board.getGrid());
+        try {
+            for (int seed = 0; seed < 10; seed++) {
+                board.generateGame(seed);
+                board.resetGame();
+                HintEngine.Hint hint = null;
+                for (int n = 0; n <= board.getGrid().size(); n++) {
+                    hint = engine.hint(endpoints(board), prefixes(board), board.getSolution(), GameBoard.YELLOW, null);
+                    if (hint.kind != HintEngine.Hint.NEXT) break;
+                    // as the touches would draw it
+                    if (board.getPath(hint.color).isEmpty()) board.addToPath(hint.color, hint.from);
+                    assertEquals(hint.from, board.getPath(hint.color).last());
+                    assertTrue(board.getGrid().isNeighbor(hint.from, hint.cell));
+                    if (board.getColor(hint.cell) == GameBoard.GRAY) board.setColor(hint.cell, hint.color);
+                    board.addToPath(hint.color, hint.cell);
+                }
+                assertEquals(HintEngine.Hint.SOLVED, hint.kind);
+                assertTrue(board.isGameEnd());
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void deadEnd_matchesSearch() {
+        Random random = new Random(1);
+        GameBoard board = new GameBoard(2);
+        HexGrid grid = board.getGrid();
+        HintEngine engine = new HintEngine(grid);
+        int deadEnds = 0;
+        try {
+            for (int n = 0; n < 300; n++) {
+                board.generateGame(n);
+                board.resetGame();
+                // a random walk of yellow from its start point
+                int head = board.getAnswerPoint(GameBoard.YELLOW, 0);
+                board.addToPath(GameBoard.YELLOW, head);
+                for (int step = random.nextInt(8); step > 0; step--) {
+                    int next = grid.neighbor(head, random.nextInt(HexGrid.DIRECTIONS));
+                    if (next == HexGrid.NONE || board.getColor(next) != GameBoard.GRAY) continue;
+                    board.setColor(next, GameBoard.YELLOW);
+                    board.addToPath(GameBoard.YELLOW, next);
+                    head = next;
+                }
+
+                HintEngine.Hint hint = engine.hint(endpoints(board), prefixes(board), board.getSolution(), GameBoard.YELLOW, null);
+                boolean completable = new Completer(board).complete();
+                assertEquals(!completable, hint.kind == HintEngine.Hint.DEAD_END);
+                if (!completable) deadEnds++;
+            }
+        } finally {
+            engine.shutdown();
+        }
+        assertTrue(deadEnds > 10);
+    }
+
+    @Test
+    public void request_reportsOnlyTheLastHint() throws InterruptedException {
+        GameBoard board = new GameBoard(4);
+        board.generateGame(1);
+        board.resetGame();
+        HintEngine engine = new HintEngine(board.getGrid());
+        final CountDownLatch reported = new CountDownLatch(1);
+        final AtomicReference<HintEngine.Hint> last = new AtomicReference<>();
+        engine.setListener(new HintEngine.Listener() {
+            @Override
+            public void onHint(HintEngine engine, HintEngine.Hint hint) {
+                last.set(hint);
+                reported.countDown();
+            }
+        });
+        try {
+            // cancelled by the next request
+            engine.request(board, GameBoard.YELLOW);
+            engine.request(board, GameBoard.RED);
+            assertTrue(reported.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(HintEngine.Hint.NEXT, last.get().kind);
+            assertEquals(GameBoard.RED, last.get().color);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static int[][] endpoints(GameBoard board) {
+        int[][] endpoints = new int[board.getColorCount()][2];
+        for (int c = 0; c < endpoints.length; c++) {
+            endpoints[c][0] = board.getAnswerPoint(c, 0);
+            endpoints[c][1] = board.getAnswerPoint(c, 1);
+        }
+        return endpoints;
+    }
+
+    private static int[][] prefixes(GameBoard board) {
+        int[][] prefixes = new int[board.getColorCount()][];
+        for (int c = 0; c < prefixes.length; c++) {
+            CellPath path = board.getPath(c);
+            prefixes[c] = new int[path.size()];
+            for (int i = 0; i < path.size(); i++) {
+                prefixes[c][i] = path.get(i);
+            }
+        }
+        return prefixes;
+    }
+
+    // completes the board by walking every path of every color in turn,
+    // yellow from the head of its path and the others from their start points
+    private static class Completer {
+        private final GameBoard board;
+        private final HexGrid grid;
+        private final boolean[] taken;
+
+        Completer(GameBoard board) {
+            this.board = board;
+            this.grid = board.getGrid();
+            taken = new boolean[grid.size()];
+            for (int i = 0; i < grid.size(); i++) {
+                taken[i] = board.getColor(i) != GameBoard.GRAY;
+            }
+        }
+
+        boolean complete() {
+            int free = 0;
+            for (boolean t : taken) {
+                if (!t) free++;
+            }
+            return walk(0, board.getPath(GameBoard.YELLOW).last(), free);
+        }
+
+        private boolean walk(int c, int head, int free) {
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int next = grid.neighbor(head, direction);
+                if (next == HexGrid.NONE) continue;
+                if (next == board.getAnswerPoint(c, 1)) {
+                    if (c + 1 == board.getColorCount()) {
+                        if (free == 0) return true;
+                    } else if (walk(c + 1, board.getAnswerPoint(c + 1, 0), free)) {
+                        return true;
+                    }
+                } else if (!taken[next]) {
+                    taken[next] = true;
+                    boolean found = walk(c, next, free - 1);
+                    taken[next] = false;
+                    if (found) return true;
+                }
+            }
+            return false;
+        }
+    }
+}
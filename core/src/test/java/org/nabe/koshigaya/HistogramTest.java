@@ -0,0 +1,79 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void buckets_holdTheirValues() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(1, Histogram.bucketOf(1));
+        assertEquals(2, Histogram.bucketOf(2));
+        assertEquals(2, Histogram.bucketOf(3));
+        assertEquals(63, Histogram.bucketOf(Long.MAX_VALUE));
+        for (int bucket = 1; bucket < Histogram.BUCKETS; bucket++) {
+            assertEquals(bucket, Histogram.bucketOf(Histogram.upperBound(bucket)));
+            assertEquals(bucket - 1, Histogram.bucketOf(Histogram.upperBound(bucket - 1)));
+            if (bucket < 63) assertEquals(bucket + 1, Histogram.bucketOf(Histogram.upperBound(bucket) + 1));
+        }
+    }
+
+    @Test
+    public void percentiles_boundTheValues() {
+        Random random = new Random(1);
+        Histogram histogram = new Histogram();
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (int percent : new int[]{1, 50, 90, 99, 100}) {
+            long expected = values[(values.length * percent + 99) / 100 - 1];
+            long value = histogram.getPercentile(percent);
+            // the upper bound of the bucket of the value
+            assertTrue(value >= expected);
+            assertTrue(value < 2 * expected + 1);
+        }
+
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void record_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long id = Thread.currentThread().getId();
+
+        Metrics metrics = new Metrics();
+        for (int i = 0; i < 100000; i++) {
+            metrics.record(Metrics.FRAME_NANOS, i * 31L);
+            metrics.increment(Metrics.MOVES);
+        }
+
+        long before = threads.getThreadAllocatedBytes(id);
+        long overhead = threads.getThreadAllocatedBytes(id) - before;
+
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100000; i++) {
+            metrics.record(Metrics.FRAME_NANOS, i * 31L);
+            metrics.increment(Metrics.MOVES);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+        assertEquals(0, allocated);
+        assertEquals(200000, metrics.getCounter(Metrics.MOVES));
+    }
+}
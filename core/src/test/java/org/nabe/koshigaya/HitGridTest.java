@@ -0,0 +1,83 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HitGridTest {
+
+    @Test
+    public void hexAt_isTheNearestCenter() {
+        Random random = new Random(1);
+        for (int radius = 2; radius <= 5; radius++) {
+            GameBoard board = new GameBoard(radius);
+            HexGrid grid = board.getGrid();
+            BoardRenderer renderer = new BoardRenderer(board);
+            int canvasSize = 731;
+            renderer.layout(canvasSize);
+            float hitRadius = renderer.getPointSize() * 3 / 4f;
+
+            for (int n = 0; n < 20000; n++) {
+                float x = random.nextFloat() * canvasSize;
+                float y = random.nextFloat() * canvasSize;
+                int nearest = HexGrid.NONE;
+                double best = Double.MAX_VALUE;
+                for (int i = 0; i < grid.size(); i++) {
+                    double d = Math.hypot(renderer.getCenterX(i) - x, renderer.getCenterY(i) - y);
+                    if (d < best) {
+                        best = d;
+                        nearest = i;
+                    }
+                }
+                // ties and the hit radius are left to the float rounding
+                if (Math.abs(best - hitRadius) < 1e-3) continue;
+                int expected = best < hitRadius ? nearest : HexGrid.NONE;
+                int hex = renderer.hexAt(x, y);
+                if (hex != expected && hex != HexGrid.NONE && expected != HexGrid.NONE) {
+                    double d = Math.hypot(renderer.getCenterX(hex) - x, renderer.getCenterY(hex) - y);
+                    assertEquals(best, d, 1e-3);
+                } else {
+                    assertEquals(expected, hex);
+                }
+            }
+
+            // every center is its own hex, and outside of the canvas is none
+            for (int i = 0; i < grid.size(); i++) {
+                assertEquals(i, renderer.hexAt(renderer.getCenterX(i), renderer.getCenterY(i)));
+            }
+            assertEquals(HexGrid.NONE, renderer.hexAt(-1, 10));
+            assertEquals(HexGrid.NONE, renderer.hexAt(10, canvasSize + 1));
+        }
+    }
+
+    @Test
+    public void hexAt_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long id = Thread.currentThread().getId();
+
+        BoardRenderer renderer = new BoardRenderer(new GameBoard(4));
+        renderer.layout(1000);
+        int sum = 0;
+        for (int i = 0; i < 100000; i++) {
+            sum += renderer.hexAt(i % 1000, i / 100);
+        }
+
+        long before = threads.getThreadAllocatedBytes(id);
+        long overhead = threads.getThreadAllocatedBytes(id) - before;
+
+        before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100000; i++) {
+            sum += renderer.hexAt(i % 1000, i / 100);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before - overhead;
+        assertEquals(0, allocated);
+        assertTrue(sum != 0);
+    }
+}
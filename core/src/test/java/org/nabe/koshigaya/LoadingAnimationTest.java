@@ -0,0 +1,29 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LoadingAnimationTest {
+
+    @Test
+    public void palette_changesOncePerPeriod() {
+        LoadingAnimation animation = new LoadingAnimation(19, 4, new SplitMix64(1));
+        long start = 1000000000L;
+        animation.start(start);
+        int[] first = animation.getPalette();
+        assertEquals(19, first.length);
+        for (int color : first) {
+            assertTrue(color >= 0 && color < 4);
+        }
+
+        // 60 frames per second, the palette changes every 250 ms
+        int changes = 0;
+        for (int frame = 0; frame < 60; frame++) {
+            if (animation.update(start + frame * 16666667L)) changes++;
+        }
+        assertEquals(3, changes);
+        assertNotSame(first, animation.getPalette());
+        assertFalse(animation.update(start + 59 * 16666667L));
+    }
+}
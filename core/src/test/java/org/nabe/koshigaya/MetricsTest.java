@@ -0,0 +1,105 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void board_recordsItsCalls() {
+        Metrics metrics = new Metrics();
+        GameBoard board = new GameBoard(3);
+        board.setMetrics(metrics);
+        for (int i = 0; i < 5; i++) {
+            board.generateGameByRejection();
+        }
+        board.generateGame(1);
+        board.clearPath(GameBoard.YELLOW, 0);
+        board.findPath(GameBoard.YELLOW, board.getAnswerPoint(GameBoard.YELLOW, 0),
+                board.getAnswerPoint(GameBoard.YELLOW, 1));
+
+        Histogram attempts = metrics.getHistogram(Metrics.GENERATE_ATTEMPTS);
+        assertEquals(5, attempts.getCount());
+        assertEquals(6, metrics.getHistogram(Metrics.GENERATE_NANOS).getCount());
+        // every attempt is verified, the last one of each puzzle solvable
+        assertEquals(attempts.getSum(), metrics.getHistogram(Metrics.VERIFY_NANOS).getCount());
+        assertEquals(5, metrics.getCounter(Metrics.VERIFIED));
+        assertTrue(metrics.getCounter(Metrics.TABLE_MISSES) > 0);
+        assertEquals(1, metrics.getHistogram(Metrics.FIND_PATH_NANOS).getCount());
+        assertTrue(metrics.getHistogram(Metrics.VERIFY_NANOS).getMax() > 0);
+
+        // nothing is recorded without the metrics
+        board.setMetrics(null);
+        board.generateGame(2);
+        assertEquals(6, metrics.getHistogram(Metrics.GENERATE_NANOS).getCount());
+    }
+
+    @Test
+    public void toJson_hasEveryMeasure() {
+        Metrics metrics = new Metrics();
+        metrics.record(Metrics.FRAME_NANOS, 5);
+        metrics.record(Metrics.FRAME_NANOS, 1000);
+        metrics.increment(Metrics.DEAD_ENDS);
+        String json = metrics.toJson();
+        assertTrue(json.startsWith("{\"histograms\":{\"generate_attempts\":{\"count\":0,"));
+        assertTrue(json.contains("\"frame_ns\":{\"count\":2,\"sum\":1005,\"max\":1000,"
+                + "\"p50\":7,\"p90\":1000,\"p99\":1000,\"buckets\":[0,0,0,1,0,0,0,0,0,0,1]}"));
+        assertTrue(json.endsWith("\"counters\":{\"verified\":0,\"moves\":0,\"dead_ends\":1,"
+                + "\"table_hits\":0,\"table_misses\":0}}"));
+        for (int i = 0; i < Metrics.HISTOGRAMS; i++) {
+            assertTrue(json.contains("\"" + Metrics.getHistogramName(i) + "\":{"));
+        }
+
+        metrics.clear();
+        assertEquals(0, metrics.getHistogram(Metrics.FRAME_NANOS).getCount());
+        assertEquals(0, metrics.getCounter(Metrics.DEAD_ENDS));
+    }
+
+    @Test
+    public void queue_recordsItsRefills() throws InterruptedException {
+        // as the game takes its puzzles
+        Metrics metrics = new Metrics();
+        PuzzleQueue queue = new PuzzleQueue(new PuzzleGenerator(new HexGrid(3), new Random(1)), 3, 2);
+        queue.setMetrics(metrics);
+        queue.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(queue.take());
+                // recorded before the puzzle is put into the queue
+                assertTrue(metrics.getCount(Metrics.GENERATE_NANOS) >= i + 1);
+            }
+        } finally {
+            queue.stop();
+        }
+        Histogram generate = metrics.getHistogram(Metrics.GENERATE_NANOS);
+        assertTrue(generate.getMax() > 0);
+        assertTrue(generate.getCount() <= queue.getRefillCount());
+    }
+
+    @Test
+    public void record_onTwoThreads_losesNothing() throws InterruptedException {
+        final Metrics metrics = new Metrics();
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        metrics.record(Metrics.GENERATE_NANOS, i);
+                        metrics.increment(Metrics.MOVES);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200000, metrics.getCount(Metrics.GENERATE_NANOS));
+        assertEquals(200000, metrics.getHistogram(Metrics.GENERATE_NANOS).getCount());
+        assertEquals(200000, metrics.getCounter(Metrics.MOVES));
+    }
+}
@@ -0,0 +1,135 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ParallelGeneratorTest {
+
+    @Test
+    public void rejection_findsSolvedPuzzles() throws InterruptedException {
+        HexGrid grid = new HexGrid(2);
+        ParallelGenerator generator = new ParallelGenerator(grid, 4, new SplitMix64(1));
+        try {
+            for (int i = 0; i < 20; i++) {
+                Puzzle puzzle = generator.generateByRejection(3);
+                assertTrue(generator.getAttempts() >= 1);
+                assertTrue(PuzzleBankBuilder.isSolvedByItsPaths(grid, puzzle));
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void unique_hasOneSolution() throws InterruptedException {
+        HexGrid grid = new HexGrid(2);
+        ParallelGenerator generator = new ParallelGenerator(grid, 3, new SplitMix64(2));
+        SolutionCounter counter = new SolutionCounter(grid);
+        try {
+            for (int i = 0; i < 5; i++) {
+                Puzzle puzzle = generator.generateUnique(6);
+                assertEquals(1, counter.count(puzzle.endpoints, 2).count);
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void failedWorker_isThrown() throws InterruptedException {
+        // the solver takes maps of radius 4 or less
+        ParallelGenerator generator = new ParallelGenerator(new HexGrid(5), 3, new SplitMix64(3));
+        try {
+            generator.generateByRejection(3);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void interrupted_waitsForTheWorkers() throws InterruptedException {
+        HexGrid grid = new HexGrid(2);
+        ParallelGenerator generator = new ParallelGenerator(grid, 4, new SplitMix64(4));
+        try {
+            for (int i = 0; i < 20; i++) {
+                Thread.currentThread().interrupt();
+                try {
+                    generator.generateUnique(6);
+                    fail();
+                } catch (InterruptedException expected) {
+                    assertFalse(Thread.currentThread().isInterrupted());
+                }
+                // the workers are free for the next call
+                Puzzle puzzle = generator.generateByRejection(3);
+                assertTrue(PuzzleBankBuilder.isSolvedByItsPaths(grid, puzzle));
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelledSolver_stops() {
+        // random end points at radius 4 are rarely solved quickly
+        HexGrid grid = new HexGrid(4);
+        int[][] endpoints = {{0, 60}, {4, 56}, {26, 34}};
+        AtomicBoolean cancel = new AtomicBoolean(true);
+        PathSolver.Result result = new PathSolver(grid).solve(endpoints, cancel);
+        assertTrue(result.cancelled);
+        assertFalse(result.solved);
+        assertTrue(result.nodes <= 1024);
+    }
+
+    @Test
+    public void cancelledCounter_stops() {
+        // counting a puzzle of 3 colors at radius 4 sweeps many frontier states
+        HexGrid grid = new HexGrid(4);
+        Puzzle puzzle = new PuzzleGenerator(grid, new Random(6)).generate(3);
+        AtomicBoolean cancel = new AtomicBoolean(true);
+        SolutionCounter.Result result = new SolutionCounter(grid).count(puzzle.endpoints, 2, cancel);
+        assertTrue(result.cancelled);
+        assertEquals(0, result.count);
+        assertEquals(1, result.maxStates);
+    }
+
+    @Test
+    public void cancelledUnique_stops() {
+        HexGrid grid = new HexGrid(4);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(7));
+        AtomicBoolean cancel = new AtomicBoolean(true);
+        assertNull(generator.generateUnique(3, 1000, cancel));
+        assertTrue(generator.getLastCount().cancelled);
+        assertEquals(1, generator.getLastCount().maxStates);
+    }
+
+    @Test
+    public void counterCancelledWhileCounting_stops() throws InterruptedException {
+        // a puzzle of 3 colors at radius 4 takes a few hundred milliseconds
+        // to count, the flag is set well before the end
+        HexGrid grid = new HexGrid(4);
+        final Puzzle puzzle = new PuzzleGenerator(grid, new Random(6)).generate(3);
+        final SolutionCounter counter = new SolutionCounter(grid);
+        final AtomicBoolean cancel = new AtomicBoolean();
+        final SolutionCounter.Result[] result = new SolutionCounter.Result[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = counter.count(puzzle.endpoints, 2, cancel);
+            }
+        });
+        thread.start();
+        Thread.sleep(5);
+        cancel.set(true);
+        thread.join(10000);
+        assertFalse(thread.isAlive());
+        assertTrue(result[0].cancelled);
+        assertEquals(0, result[0].count);
+    }
+}
@@ -0,0 +1,162 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PathSolverTest {
+
+    @Test
+    public void solution_coversEveryHex() {
+        GameBoard board = new GameBoard(2);
+        HexGrid grid = board.getGrid();
+        PathSolver solver = new PathSolver(grid);
+        int solved = 0;
+        for (int i = 0; i < 200; i++) {
+            board.placeAnswerPoints();
+            int[][] endpoints = new int[GameBoard.DEFAULT_COLORS][2];
+            for (int c = 0; c < GameBoard.DEFAULT_COLORS; c++) {
+                endpoints[c][0] = board.getAnswerPoint(c, 0);
+                endpoints[c][1] = board.getAnswerPoint(c, 1);
+            }
+            PathSolver.Result result = solver.solve(endpoints);
+            assertTrue(result.nodes > 0);
+            if (!result.solved) continue;
+            solved++;
+
+            boolean[] covered = new boolean[grid.size()];
+            for (int c = 0; c < endpoints.length; c++) {
+                int[] path = result.paths[c];
+                assertEquals(endpoints[c][0], path[0]);
+                assertEquals(endpoints[c][1], path[path.length - 1]);
+                for (int j = 0; j < path.length; j++) {
+                    assertFalse(covered[path[j]]);
+                    covered[path[j]] = true;
+                    if (j > 0) assertTrue(grid.isNeighbor(path[j - 1], path[j]));
+                }
+            }
+            for (boolean b : covered) assertTrue(b);
+        }
+        assertTrue(solved > 0);
+    }
+
+    @Test
+    public void enclosedHex_hasNoSolution() {
+        // a corner hex surrounded by the start points of three different colors
+        HexGrid grid = new HexGrid(2);
+        int corner = grid.indexOf(2, -2);
+        int[][] endpoints = new int[3][2];
+        int c = 0;
+        for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+            int n = grid.neighbor(corner, direction);
+            if (n != HexGrid.NONE) endpoints[c++][0] = n;
+        }
+        assertEquals(3, c);
+        endpoints[0][1] = grid.indexOf(-2, 2);
+        endpoints[1][1] = grid.indexOf(-2, 0);
+        endpoints[2][1] = grid.indexOf(0, 2);
+
+        PathSolver.Result result = new PathSolver(grid).solve(endpoints);
+        assertFalse(result.solved);
+        assertNull(result.paths);
+    }
+
+    @Test
+    public void symmetryPruning_keepsTheResult() {
+        Random random = new Random(1);
+        HexGrid grid = new HexGrid(2);
+        Symmetry symmetry = new Symmetry(grid);
+        PathSolver pruned = new PathSolver(grid);
+        PathSolver full = new PathSolver(grid);
+        full.setSymmetryPruning(false);
+        int symmetric = 0;
+        long prunedNodes = 0;
+        long fullNodes = 0;
+        while (symmetric < 100) {
+            // random end points, only the symmetric ones
+            int colors = 2 + random.nextInt(2);
+            int[][] endpoints = new int[colors][2];
+            boolean[] taken = new boolean[grid.size()];
+            for (int c = 0; c < colors; c++) {
+                for (int s = 0; s < 2; s++) {
+                    int hex;
+                    do {
+                        hex = random.nextInt(grid.size());
+                    } while (taken[hex]);
+                    taken[hex] = true;
+                    endpoints[c][s] = hex;
+                }
+            }
+            if (symmetry.stabilizers(endpoints) == 0) continue;
+            symmetric++;
+
+            PathSolver.Result a = pruned.solve(endpoints);
+            PathSolver.Result b = full.solve(endpoints);
+            assertEquals(b.solved, a.solved);
+            prunedNodes += a.nodes;
+            fullNodes += b.nodes;
+        }
+        assertTrue(prunedNodes < fullNodes);
+    }
+
+    @Test
+    public void table_keepsTheResult() {
+        Random random = new Random(1);
+        HexGrid grid = new HexGrid(3);
+        PathSolver cached = new PathSolver(grid);
+        PathSolver full = new PathSolver(grid);
+        full.setTableEnabled(false);
+        long cachedNodes = 0;
+        long fullNodes = 0;
+        long hits = 0;
+        int solved = 0;
+        for (int n = 0; n < 40; n++) {
+            int[][] endpoints = new int[4][2];
+            boolean[] taken = new boolean[grid.size()];
+            for (int c = 0; c < 4; c++) {
+                for (int s = 0; s < 2; s++) {
+                    int hex;
+                    do {
+                        hex = random.nextInt(grid.size());
+                    } while (taken[hex]);
+                    taken[hex] = true;
+                    endpoints[c][s] = hex;
+                }
+            }
+
+            PathSolver.Result a = cached.solve(endpoints);
+            PathSolver.Result b = full.solve(endpoints);
+            assertEquals(b.solved, a.solved);
+            assertEquals(0, b.tableHits + b.tableMisses);
+            cachedNodes += a.nodes;
+            fullNodes += b.nodes;
+            hits += a.tableHits;
+            if (!a.solved) continue;
+            solved++;
+            // every hex on a path and the paths connected
+            boolean[] covered = new boolean[grid.size()];
+            for (int c = 0; c < 4; c++) {
+                int[] path = a.paths[c];
+                assertEquals(endpoints[c][0], path[0]);
+                assertEquals(endpoints[c][1], path[path.length - 1]);
+                for (int i = 0; i < path.length; i++) {
+                    assertFalse(covered[path[i]]);
+                    covered[path[i]] = true;
+                    if (i > 0) assertTrue(grid.isNeighbor(path[i - 1], path[i]));
+                }
+            }
+            for (boolean hex : covered) {
+                assertTrue(hex);
+            }
+        }
+        TranspositionTable table = cached.getTable();
+        assertEquals(hits, table.getHits());
+        assertTrue(solved > 0);
+        assertTrue(hits > 0);
+        assertTrue(table.getHitRate() > 0);
+        assertTrue(cachedNodes < fullNodes);
+        assertNull(full.getTable());
+    }
+}
@@ -0,0 +1,124 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PuzzleBankTest {
+
+    @Test
+    public void puzzles_areReadAsWritten() throws IOException {
+        List<Puzzle[]> sections = new ArrayList<>();
+        for (int radius = 2; radius <= 4; radius++) {
+            PuzzleGenerator generator = new PuzzleGenerator(new HexGrid(radius), new Random(radius));
+            Puzzle[] puzzles = new Puzzle[20];
+            for (int i = 0; i < puzzles.length; i++) {
+                puzzles[i] = generator.generate(3);
+            }
+            sections.add(puzzles);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleBank.write(out, sections);
+        PuzzleBank bank = new PuzzleBank(ByteBuffer.wrap(out.toByteArray()));
+
+        for (Puzzle[] puzzles : sections) {
+            Puzzle first = puzzles[0];
+            assertEquals(puzzles.length, bank.count(first.radius, 3));
+            for (int i = 0; i < puzzles.length; i++) {
+                Puzzle puzzle = bank.get(first.radius, 3, i);
+                assertEquals(first.radius, puzzle.radius);
+                for (int c = 0; c < 3; c++) {
+                    assertArrayEquals(puzzles[i].endpoints[c], puzzle.endpoints[c]);
+                    assertArrayEquals(puzzles[i].paths[c], puzzle.paths[c]);
+                }
+            }
+        }
+        assertEquals(0, bank.count(5, 3));
+        assertNull(bank.random(2, 4, new Random()));
+        assertNotNull(bank.random(2, 3, new Random()));
+    }
+
+    @Test
+    public void randomPuzzles_areShuffled() throws IOException {
+        HexGrid grid = new HexGrid(3);
+        Symmetry symmetry = new Symmetry(grid);
+        Puzzle stored = symmetry.canonical(new PuzzleGenerator(grid, new Random(1)).generate(4));
+        List<Puzzle[]> sections = new ArrayList<>();
+        sections.add(new Puzzle[]{stored});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleBank.write(out, sections);
+        PuzzleBank bank = new PuzzleBank(ByteBuffer.wrap(out.toByteArray()));
+
+        Symmetry.Key key = symmetry.key(stored.endpoints);
+        Set<Integer> firstStarts = new HashSet<>();
+        Set<Integer> storedFirstColors = new HashSet<>();
+        Random random = new Random(2);
+        for (int n = 0; n < 100; n++) {
+            Puzzle puzzle = bank.random(3, 4, random);
+            // the same puzzle with its solution
+            assertEquals(key, symmetry.key(puzzle.endpoints));
+            assertTrue(PuzzleBankBuilder.isSolvedByItsPaths(grid, puzzle));
+            firstStarts.add(puzzle.endpoints[0][0]);
+            for (int c = 0; c < 4; c++) {
+                if (puzzle.paths[c].length == stored.paths[0].length) storedFirstColors.add(c);
+            }
+        }
+        // in different orientations with the colors moved
+        assertTrue(firstStarts.size() >= 8);
+        assertTrue(storedFirstColors.size() >= 3);
+        // as written by get()
+        assertArrayEquals(stored.endpoints[0], bank.get(3, 4, 0).endpoints[0]);
+    }
+
+    @Test
+    public void puzzlesWithoutSolution_haveNoPaths() throws IOException {
+        PuzzleGenerator generator = new PuzzleGenerator(new HexGrid(3), new Random(1));
+        Puzzle puzzle = generator.generate(3);
+        List<Puzzle[]> sections = new ArrayList<>();
+        sections.add(new Puzzle[]{new Puzzle(3, puzzle.endpoints, null)});
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleBank.write(out, sections);
+        assertEquals(8 + 12 + 2 + 3 * 2, out.size());
+        Puzzle read = new PuzzleBank(ByteBuffer.wrap(out.toByteArray())).get(3, 3, 0);
+        assertNull(read.paths);
+        for (int c = 0; c < 3; c++) {
+            assertArrayEquals(puzzle.endpoints[c], read.endpoints[c]);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBank_isRejected() throws IOException {
+        List<Puzzle[]> sections = new ArrayList<>();
+        PuzzleGenerator generator = new PuzzleGenerator(new HexGrid(2), new Random(1));
+        sections.add(new Puzzle[]{generator.generate(3), generator.generate(3)});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleBank.write(out, sections);
+        byte[] bytes = out.toByteArray();
+        new PuzzleBank(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void corruptedRecord_isRejected() throws IOException {
+        List<Puzzle[]> sections = new ArrayList<>();
+        PuzzleGenerator generator = new PuzzleGenerator(new HexGrid(2), new Random(1));
+        Puzzle puzzle = generator.generate(3);
+        sections.add(new Puzzle[]{puzzle});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleBank.write(out, sections);
+        byte[] bytes = out.toByteArray();
+        // the last path loses its end point
+        bytes[bytes.length - 1] = (byte) puzzle.endpoints[2][0];
+        new PuzzleBank(ByteBuffer.wrap(bytes)).get(2, 3, 0);
+    }
+}
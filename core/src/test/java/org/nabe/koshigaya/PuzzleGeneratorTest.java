@@ -0,0 +1,38 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PuzzleGeneratorTest {
+
+    @Test
+    public void puzzle_isSolvedByItsPaths() {
+        for (int radius = 2; radius <= 4; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(radius));
+            for (int i = 0; i < 50; i++) {
+                Puzzle puzzle = generator.generate(3);
+                assertEquals(radius, puzzle.radius);
+
+                boolean[] covered = new boolean[grid.size()];
+                for (int c = 0; c < puzzle.getColorCount(); c++) {
+                    int[] path = puzzle.paths[c];
+                    int start = puzzle.endpoints[c][0];
+                    int end = puzzle.endpoints[c][1];
+                    assertEquals(start, path[0]);
+                    assertEquals(end, path[path.length - 1]);
+                    assertFalse(grid.isNeighbor(start, end));
+                    for (int j = 0; j < path.length; j++) {
+                        assertFalse(covered[path[j]]);
+                        covered[path[j]] = true;
+                        if (j > 0) assertTrue(grid.isNeighbor(path[j - 1], path[j]));
+                    }
+                }
+                for (boolean b : covered) assertTrue(b);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PuzzleQueueTest {
+
+    @Test
+    public void queue_isRefilledUpToCapacity() throws InterruptedException {
+        PuzzleQueue queue = new PuzzleQueue(new PuzzleGenerator(new HexGrid(3), new Random(1)), 3, 2);
+        queue.start();
+        try {
+            assertNotNull(queue.take());
+            waitForDepth(queue, 2);
+            assertEquals(2, queue.getCapacity());
+            // one taken and two waiting, the third may be generated already
+            assertTrue(queue.getRefillCount() >= 3);
+            assertTrue(queue.getAverageRefillNanos() > 0);
+            assertTrue(queue.getMaxRefillNanos() >= queue.getAverageRefillNanos());
+
+            assertNotNull(queue.poll());
+            assertNotNull(queue.poll());
+            waitForDepth(queue, 2);
+        } finally {
+            queue.stop();
+        }
+    }
+
+    private static void waitForDepth(PuzzleQueue queue, int depth) throws InterruptedException {
+        for (int i = 0; i < 500 && queue.getDepth() < depth; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(depth, queue.getDepth());
+    }
+}
@@ -0,0 +1,101 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SolutionCounterTest {
+
+    @Test
+    public void count_matchesExhaustiveSearch() {
+        HexGrid grid = new HexGrid(2);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(5));
+        SolutionCounter counter = new SolutionCounter(grid);
+        for (int i = 0; i < 30; i++) {
+            Puzzle puzzle = generator.generate(3);
+            long expected = new Enumerator(grid, puzzle.endpoints).count();
+            SolutionCounter.Result result = counter.count(puzzle.endpoints, Long.MAX_VALUE);
+            assertEquals(expected, result.count);
+            assertTrue(expected >= 1);
+        }
+    }
+
+    @Test
+    public void count_isCappedAtLimit() {
+        HexGrid grid = new HexGrid(3);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(7));
+        SolutionCounter counter = new SolutionCounter(grid);
+        for (int i = 0; i < 30; i++) {
+            Puzzle puzzle = generator.generate(3);
+            SolutionCounter.Result all = counter.count(puzzle.endpoints, Long.MAX_VALUE);
+            SolutionCounter.Result capped = counter.count(puzzle.endpoints, 2);
+            assertEquals(Math.min(2, all.count), capped.count);
+            assertEquals(all.count >= 2, capped.capped);
+        }
+    }
+
+    @Test
+    public void enclosedHex_hasNoSolution() {
+        HexGrid grid = new HexGrid(2);
+        // the corner hex (2, -2) is surrounded by the three colors
+        int[][] endpoints = {
+                {grid.indexOf(1, -2), grid.indexOf(0, 0)},
+                {grid.indexOf(1, -1), grid.indexOf(-2, 2)},
+                {grid.indexOf(2, -1), grid.indexOf(-1, 2)},
+        };
+        assertEquals(0, new SolutionCounter(grid).count(endpoints, 2).count);
+    }
+
+    @Test
+    public void generateUnique_hasOneSolution() {
+        HexGrid grid = new HexGrid(2);
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(3));
+        Puzzle puzzle = generator.generateUnique(6, 1000);
+        assertNotNull(puzzle);
+        assertEquals(1, new Enumerator(grid, puzzle.endpoints).count());
+    }
+
+    // counts the solutions by walking every path of every color in turn
+    private static class Enumerator {
+        private final HexGrid grid;
+        private final int[][] endpoints;
+        private final int[] cells;
+
+        Enumerator(HexGrid grid, int[][] endpoints) {
+            this.grid = grid;
+            this.endpoints = endpoints;
+            cells = new int[grid.size()];
+            java.util.Arrays.fill(cells, -1);
+            for (int c = 0; c < endpoints.length; c++) {
+                cells[endpoints[c][0]] = c;
+                cells[endpoints[c][1]] = c;
+            }
+        }
+
+        long count() {
+            return walk(0, endpoints[0][0], grid.size() - 2 * endpoints.length);
+        }
+
+        private long walk(int c, int head, int free) {
+            long count = 0;
+            for (int direction = 0; direction < HexGrid.DIRECTIONS; direction++) {
+                int next = grid.neighbor(head, direction);
+                if (next == HexGrid.NONE) continue;
+                if (next == endpoints[c][1]) {
+                    if (c + 1 == endpoints.length) {
+                        if (free == 0) count++;
+                    } else {
+                        count += walk(c + 1, endpoints[c + 1][0], free);
+                    }
+                } else if (cells[next] == -1) {
+                    cells[next] = c;
+                    count += walk(c, next, free - 1);
+                    cells[next] = -1;
+                }
+            }
+            return count;
+        }
+    }
+}
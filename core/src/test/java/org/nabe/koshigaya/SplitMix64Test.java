@@ -0,0 +1,44 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class SplitMix64Test {
+
+    @Test
+    public void numbers_matchSplittableRandom() {
+        SplitMix64 random = new SplitMix64(42);
+        SplittableRandom expected = new SplittableRandom(42);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.nextLong(), random.nextLong());
+        }
+        SplitMix64 split = random.split();
+        SplittableRandom expectedSplit = expected.split();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expectedSplit.nextLong(), split.nextLong());
+            assertEquals(expected.nextLong(), random.nextLong());
+        }
+    }
+
+    @Test
+    public void seed_makesSamePuzzle() {
+        HexGrid grid = new HexGrid(3);
+        PuzzleGenerator a = new PuzzleGenerator(grid, new SplitMix64(1));
+        PuzzleGenerator b = new PuzzleGenerator(grid, new SplitMix64(2));
+        for (long seed = 0; seed < 20; seed++) {
+            Puzzle expected = a.generate(3, seed);
+            // whatever was generated before
+            b.generate(3);
+            Puzzle puzzle = b.generate(3, seed);
+            for (int c = 0; c < 3; c++) {
+                assertArrayEquals(expected.endpoints[c], puzzle.endpoints[c]);
+                assertArrayEquals(expected.paths[c], puzzle.paths[c]);
+            }
+        }
+        assertFalse(Arrays.deepEquals(a.generate(3, 1).endpoints, a.generate(3, 2).endpoints));
+    }
+}
@@ -0,0 +1,105 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SymmetryTest {
+
+    @Test
+    public void transforms_keepTheNeighbors() {
+        for (int radius = 2; radius <= 8; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            Symmetry symmetry = new Symmetry(grid);
+            Set<String> distinct = new HashSet<>();
+            for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+                boolean[] hit = new boolean[grid.size()];
+                StringBuilder map = new StringBuilder();
+                for (int i = 0; i < grid.size(); i++) {
+                    int mapped = symmetry.apply(t, i);
+                    assertFalse(hit[mapped]);
+                    hit[mapped] = true;
+                    map.append(mapped).append(',');
+                    for (int n : grid.neighbors(i)) {
+                        if (n != HexGrid.NONE) assertTrue(grid.isNeighbor(mapped, symmetry.apply(t, n)));
+                    }
+                }
+                distinct.add(map.toString());
+            }
+            assertEquals(Symmetry.TRANSFORMS, distinct.size());
+            for (int i = 0; i < grid.size(); i++) {
+                assertEquals(i, symmetry.apply(Symmetry.IDENTITY, i));
+            }
+        }
+    }
+
+    @Test
+    public void key_isTheSameUnderTheSymmetries() {
+        Random random = new Random(1);
+        for (int radius = 2; radius <= 4; radius++) {
+            HexGrid grid = new HexGrid(radius);
+            Symmetry symmetry = new Symmetry(grid);
+            PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(radius));
+            for (int n = 0; n < 200; n++) {
+                Puzzle puzzle = generator.generate(3 + random.nextInt(3));
+                Symmetry.Key key = symmetry.key(puzzle.endpoints);
+                Puzzle canonical = symmetry.canonical(puzzle);
+                assertEquals(key, symmetry.key(canonical.endpoints));
+                assertTrue(PuzzleBankBuilder.isSolvedByItsPaths(grid, canonical));
+                // the canonical form of the canonical form is itself
+                Puzzle again = symmetry.canonical(canonical);
+                for (int c = 0; c < canonical.getColorCount(); c++) {
+                    assertArrayEquals(canonical.endpoints[c], again.endpoints[c]);
+                }
+
+                // transformed, the colors renamed and the end points swapped
+                int t = random.nextInt(Symmetry.TRANSFORMS);
+                int colors = puzzle.getColorCount();
+                int shift = random.nextInt(colors);
+                int[][] endpoints = new int[colors][2];
+                for (int c = 0; c < colors; c++) {
+                    int swap = random.nextInt(2);
+                    endpoints[(c + shift) % colors][0] = symmetry.apply(t, puzzle.endpoints[c][swap]);
+                    endpoints[(c + shift) % colors][1] = symmetry.apply(t, puzzle.endpoints[c][1 - swap]);
+                }
+                assertEquals(key, symmetry.key(endpoints));
+                assertEquals(key.hashCode(), symmetry.key(endpoints).hashCode());
+            }
+        }
+    }
+
+    @Test
+    public void stabilizers_mapThePuzzleToItself() {
+        HexGrid grid = new HexGrid(2);
+        Symmetry symmetry = new Symmetry(grid);
+        // the center to the both ends of a line through it, and a pair
+        // mirrored on the line
+        int center = grid.indexOf(0, 0);
+        int[][] endpoints = {
+                {grid.indexOf(2, 0), grid.indexOf(-2, 0)},
+                {grid.indexOf(0, 2), grid.indexOf(0, -2)},
+        };
+        int mask = symmetry.stabilizers(endpoints);
+        assertTrue(mask != 0);
+        for (int t = 1; t < Symmetry.TRANSFORMS; t++) {
+            if ((mask & (1 << t)) == 0) continue;
+            assertEquals(center, symmetry.apply(t, center));
+            assertEquals(symmetry.key(endpoints), symmetry.key(new int[][]{
+                    {symmetry.apply(t, endpoints[0][0]), symmetry.apply(t, endpoints[0][1])},
+                    {symmetry.apply(t, endpoints[1][0]), symmetry.apply(t, endpoints[1][1])}}));
+        }
+        // the rotation by 180 degrees swaps the ends of the lines
+        assertTrue((mask & (1 << 3)) != 0);
+
+        PuzzleGenerator generator = new PuzzleGenerator(grid, new Random(1));
+        int symmetric = 0;
+        for (int n = 0; n < 1000; n++) {
+            if (symmetry.stabilizers(generator.generate(3).endpoints) != 0) symmetric++;
+        }
+        assertTrue(symmetric > 0 && symmetric < 100);
+    }
+}
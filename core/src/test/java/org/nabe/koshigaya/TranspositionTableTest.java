@@ -0,0 +1,86 @@
+package org.nabe.koshigaya;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void put_keepsTheCostlyAndTheLast() {
+        // a single bucket of two entries, the states told by the free hexes
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(2, table.capacity());
+        assertFalse(table.contains(0, 10, 1, 0));
+        table.put(0, 10, 1, 0, 100);
+        table.put(0, 20, 1, 0, 5);
+        assertTrue(table.contains(0, 10, 1, 0));
+        assertTrue(table.contains(0, 20, 1, 0));
+
+        // the cheaper state replaces the last one
+        table.put(0, 30, 1, 0, 1);
+        assertTrue(table.contains(0, 10, 1, 0));
+        assertFalse(table.contains(0, 20, 1, 0));
+        assertTrue(table.contains(0, 30, 1, 0));
+
+        // the costlier state takes the first entry, the first one the second
+        table.put(0, 40, 1, 0, 200);
+        assertTrue(table.contains(0, 40, 1, 0));
+        assertTrue(table.contains(0, 10, 1, 0));
+        assertFalse(table.contains(0, 30, 1, 0));
+
+        // the states of an older search give way
+        table.newSearch();
+        table.put(0, 50, 1, 0, 1);
+        assertTrue(table.contains(0, 50, 1, 0));
+        assertTrue(table.contains(0, 40, 1, 0));
+        assertFalse(table.contains(0, 10, 1, 0));
+
+        assertEquals(5, table.getStores());
+        assertEquals(3, table.getOverwrites());
+        assertEquals(8, table.getHits());
+        assertEquals(4, table.getMisses());
+        assertEquals(8.0 / 12, table.getHitRate(), 1e-9);
+
+        table.clear();
+        assertFalse(table.contains(0, 50, 1, 0));
+        table.clearCounts();
+        assertEquals(0, table.getHits());
+        assertEquals(0, table.getHitRate(), 0);
+    }
+
+    @Test
+    public void put_sameState_storedOnce() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.put(7, 0, 3, 0, 1);
+        table.put(7, 0, 3, 0, 3);
+        assertTrue(table.contains(7, 0, 3, 0));
+        assertEquals(1, table.getStores());
+        assertEquals(0, table.getOverwrites());
+    }
+
+    @Test
+    public void sameHash_otherState_isNotFound() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.put(7, 12, 3, 0, 1);
+        assertFalse(table.contains(7, 13, 3, 0));
+        assertFalse(table.contains(7, 12, 5, 0));
+        // the heads of the colors swapped
+        assertFalse(table.contains(7, 12, 3, 1 << 3));
+        assertTrue(table.contains(7, 12, 3, 0));
+    }
+
+    @Test
+    public void headColors_tellTheColorsApart() {
+        long[] heads = {BitGrid.bit(3) | BitGrid.bit(9), 0, BitGrid.bit(1) | BitGrid.bit(5)};
+        // the heads 1, 3, 5, 9 of the colors 2, 0, 2, 0
+        assertEquals(2 | 0 << 3 | 2 << 6 | 0 << 9, TranspositionTable.headColors(heads, 3));
+        long[] swapped = {heads[2], 0, heads[0]};
+        assertEquals(0 | 2 << 3 | 0 << 6 | 2 << 9, TranspositionTable.headColors(swapped, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLargeTable_isRejected() {
+        new TranspositionTable(TranspositionTable.MAX_BITS + 1);
+    }
+}